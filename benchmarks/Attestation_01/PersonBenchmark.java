@@ -0,0 +1,102 @@
+package Attestation_01;
+
+import Common.AsyncOutputSink;
+import Common.OutputSink;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Покупки и сравнение покупателей в зависимости от размера пакета.
+ * Перед каждой итерацией пакет заполняется до bagSize покупок, а за итерацию продолжает расти.
+ * Person.buy пишет сообщение в общий вывод, поэтому на время замера он заменяется асинхронным
+ * выводом в пустой поток: меряется сама покупка, сборка строки и передача её выводу, а не терминал.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersonBenchmark {
+    private static final int PRODUCTS = 16;
+
+    @Param({"0", "1000", "100000"})
+    public int bagSize;
+
+    @Param({"false", "true"})
+    public boolean compactBag;
+
+    private final Product[] products = new Product[PRODUCTS];
+    private Person buyer;
+    private Person left; // Два покупателя с одинаковыми пакетами для equals/hashCode
+    private Person right;
+    private int next;
+    private OutputSink previous;
+    private OutputSink sink;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        for (int i = 0; i < PRODUCTS; i++) {
+            products[i] = i % 2 == 0
+                    ? new Product("Продукт " + i, 100 + i)
+                    : new DiscountProduct("Скидочный " + i, 100 + i, 10, "01.01.2099");
+        }
+        left = filled("Покупатель");
+        right = filled("Покупатель");
+        sink = new AsyncOutputSink(new PrintStream(OutputStream.nullOutputStream()), AsyncOutputSink.DEFAULT_BATCH);
+        previous = OutputSink.install(sink);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        buyer = filled("Покупатель");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        OutputSink.install(previous);
+        sink.close();
+    }
+
+    private Person filled(String name) {
+        Person person = new Person(name, Long.MAX_VALUE / 2, compactBag);
+        for (int i = 0; i < bagSize; i++) {
+            person.tryBuy(products[i % PRODUCTS]);
+        }
+        return person;
+    }
+
+    @Benchmark
+    public void buy() {
+        buyer.buy(products[next++ & (PRODUCTS - 1)]);
+    }
+
+    @Benchmark
+    public boolean tryBuy() {
+        return buyer.tryBuy(products[next++ & (PRODUCTS - 1)]);
+    }
+
+    @Benchmark
+    public int personHashCode() {
+        return left.hashCode();
+    }
+
+    @Benchmark
+    public boolean personEquals() {
+        return left.equals(right);
+    }
+}
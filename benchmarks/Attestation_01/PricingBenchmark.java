@@ -0,0 +1,68 @@
+package Attestation_01;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Расчёт цены: DiscountProduct.getPrice() по часам PriceClock, getPrice(день) с действующей
+ * и истёкшей скидкой и ProductCatalog.price, которым пользуется пакетный режим.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingBenchmark {
+    private DiscountProduct active; // Скидка действует
+    private DiscountProduct expired; // Скидка истекла
+    private Product regular;
+    private ProductCatalog catalog;
+    private long today;
+
+    @Setup
+    public void setUp() {
+        active = new DiscountProduct("Скидочный", Money.ofMajor(500), Money.ofMajor(50), "01.01.2099");
+        expired = new DiscountProduct("Просроченный", Money.ofMajor(500), Money.ofMajor(50), "01.01.2000");
+        regular = new Product("Обычный", Money.ofMajor(500));
+        catalog = new ProductCatalog();
+        catalog.put(active);
+        catalog.put(expired);
+        today = LocalDate.now().toEpochDay();
+    }
+
+    @Benchmark
+    public long discountByClock() {
+        return active.getPrice();
+    }
+
+    @Benchmark
+    public long discountActive() {
+        return active.getPrice(today);
+    }
+
+    @Benchmark
+    public long discountExpired() {
+        return expired.getPrice(today);
+    }
+
+    @Benchmark
+    public long regular() {
+        return regular.getPrice();
+    }
+
+    @Benchmark
+    public long catalogPrice() {
+        return catalog.price(0, today);
+    }
+}
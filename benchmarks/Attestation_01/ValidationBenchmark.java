@@ -0,0 +1,51 @@
+package Attestation_01;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Проверка названия продукта: Product.setName (с исключением на неверном названии)
+ * и код ошибки RecordValidator без исключений, которым пользуется массовая загрузка.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+    @Param({"Молоко", "  Хлеб бородинский  ", "1234567", "ab"})
+    public String name;
+
+    private Product product;
+
+    @Setup
+    public void setUp() {
+        product = new Product("Продукт", 100);
+    }
+
+    @Benchmark
+    public Object setName() {
+        try {
+            product.setName(name);
+            return product;
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public int checkProductName() {
+        return RecordValidator.checkProductName(name);
+    }
+}
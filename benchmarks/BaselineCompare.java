@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сравнение результатов JMH в формате CSV (-rf csv) с базовыми.
+ * Запуск: java benchmarks/BaselineCompare.java базовый.csv новый.csv [допуск %]
+ * Для каждого бенчмарка с параметрами печатает оба результата и изменение в процентах;
+ * изменения в худшую сторону больше допуска (по умолчанию 10%) помечаются и дают код выхода 1.
+ * Метрики профилировщиков (строки вида "бенчмарк:gc.alloc.rate") сравниваются так же.
+ */
+public class BaselineCompare {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Использование: java benchmarks/BaselineCompare.java базовый.csv новый.csv [допуск %]");
+            return;
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Row> baseline = read(args[0]);
+        Map<String, Row> current = read(args[1]);
+        int regressions = 0;
+        for (Map.Entry<String, Row> entry : current.entrySet()) {
+            Row now = entry.getValue();
+            Row before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s %14.3f %-10s (нет в базовых)%n", entry.getKey(), now.score, now.unit);
+                continue;
+            }
+            double change = before.score == 0 ? 0 : (now.score - before.score) * 100 / before.score;
+            // Для времени на операцию хуже - больше, для пропускной способности - меньше
+            boolean worse = now.higherIsBetter() ? change < -tolerance : change > tolerance;
+            if (worse) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f -> %14.3f %-10s %+7.1f%%%s%n", entry.getKey(), before.score, now.score,
+                    now.unit, change, worse ? "  ХУЖЕ" : "");
+        }
+        System.out.println(regressions == 0 ? "Ухудшений нет" : "Ухудшений: " + regressions);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static final class Row {
+        final double score;
+        final String unit;
+
+        Row(double score, String unit) {
+            this.score = score;
+            this.unit = unit;
+        }
+
+        boolean higherIsBetter() {
+            return unit.startsWith("ops/");
+        }
+    }
+
+    /**
+     * Строки CSV JMH: "Benchmark","Mode","Threads","Samples","Score","Score Error (99.9%)","Unit","Param: ..."
+     * Ключ - имя бенчмарка, режим и значения параметров.
+     */
+    private static Map<String, Row> read(String path) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+        String[] header = split(lines.get(0));
+        Map<String, Row> rows = new LinkedHashMap<>();
+        for (int i = 1; i < lines.size(); i++) {
+            if (lines.get(i).isBlank()) {
+                continue;
+            }
+            String[] cells = split(lines.get(i));
+            StringBuilder key = new StringBuilder(cells[0]).append(' ').append(cells[1]);
+            for (int c = 7; c < cells.length && c < header.length; c++) {
+                if (!cells[c].isEmpty()) {
+                    key.append(' ').append(header[c].substring("Param: ".length())).append('=').append(cells[c]);
+                }
+            }
+            rows.put(key.toString(), new Row(Double.parseDouble(cells[4]), cells[6]));
+        }
+        return rows;
+    }
+
+    /**
+     * Разбор строки CSV с полями в кавычках (запятые внутри кавычек не разделяют поля)
+     */
+    private static String[] split(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells.toArray(new String[0]);
+    }
+}
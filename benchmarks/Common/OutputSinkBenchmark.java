@@ -0,0 +1,65 @@
+package Common;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Одно сообщение вида "Имя купил Продукт" в пустой поток: println со склейкой строк
+ * (как раньше в Person.buy), асинхронный вывод пачками и silent().
+ * Четыре потока пишут одновременно, как рабочие потоки пакетного режима.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class OutputSinkBenchmark {
+    private final String name = "Покупатель";
+    private final String product = "Продукт";
+    private PrintStream stream;
+    private AsyncOutputSink async;
+
+    @Setup
+    public void setUp() {
+        stream = new PrintStream(OutputStream.nullOutputStream(), true);
+        async = new AsyncOutputSink(new PrintStream(OutputStream.nullOutputStream()), AsyncOutputSink.DEFAULT_BATCH);
+    }
+
+    @TearDown
+    public void tearDown() {
+        async.close();
+    }
+
+    @Benchmark
+    public void println() {
+        stream.println(name + " купил " + product);
+    }
+
+    @Benchmark
+    public void async() {
+        async.commit(async.line().append(name).append(" купил ").append(product));
+    }
+
+    @Benchmark
+    public void silent() {
+        OutputSink out = OutputSink.silent();
+        if (out.enabled()) {
+            out.commit(out.line().append(name).append(" купил ").append(product));
+        }
+    }
+}
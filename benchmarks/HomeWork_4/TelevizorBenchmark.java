@@ -0,0 +1,83 @@
+package HomeWork_4;
+
+import Common.OutputSink;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Массовые операции над телевизорами: цикл по объектам Televizor (общий вывод на время замера
+ * заменяется OutputSink.silent(), сообщения не собираются), команды TelevizorFleet по диапазону и генерация парка.
+ * Каждая операция включает и выключает все устройства, чтобы состояние не менялось между вызовами.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class TelevizorBenchmark {
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private Televizor[] objects;
+    private TelevizorFleet fleet;
+    private OutputSink previous;
+
+    @Setup
+    public void setUp() {
+        TelevizorGenerator generator = new TelevizorGenerator(42);
+        objects = generator.generate(size);
+        fleet = new TelevizorFleet(size);
+        generator.fill(fleet, size);
+        previous = OutputSink.install(OutputSink.silent());
+    }
+
+    @TearDown
+    public void tearDown() {
+        OutputSink.install(previous);
+    }
+
+    @Benchmark
+    public int objectsCommands() {
+        int sum = 0;
+        for (Televizor tv : objects) {
+            tv.turnOn();
+            tv.changeChannel(7);
+            tv.changeVolume(3);
+            tv.changeVolume(-3);
+            tv.turnOff();
+            sum += tv.getCurrentChannel();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long fleetCommands() {
+        long changed = fleet.turnOn(0, size);
+        changed += fleet.changeChannel(0, size, 7);
+        changed += fleet.changeVolume(0, size, 3);
+        changed += fleet.changeVolume(0, size, -3);
+        return changed + fleet.turnOff(0, size);
+    }
+
+    @Benchmark
+    public long fleetBrand() {
+        return fleet.turnOnBrand("Sony") + fleet.turnOffBrand("Sony");
+    }
+
+    @Benchmark
+    public int generateFleet() {
+        return new TelevizorGenerator(7).fill(new TelevizorFleet(size), size);
+    }
+}
@@ -0,0 +1,93 @@
+package HomeWork_5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Подсчёт стрел Task2 на последовательностях от 10^6 до 10^8 символов:
+ * исходный цикл с substring из Task2.main, ArrowCounter по отображённому файлу
+ * и потоковый автомат StreamMatcher.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class ArrowBenchmark {
+    private static final String[] PIECES = {">>-->", "<--<<", ">", "<", "-", "--", ">>", "<<"};
+
+    @Param({"1000000", "10000000", "100000000"})
+    public int length;
+
+    private String sequence;
+    private ByteBuffer bytes;
+    private Path file;
+    private StreamMatcher matcher;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Случайная последовательность с частыми стрелами, в том числе на стыках кусков
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder sb = new StringBuilder(length + 5);
+        while (sb.length() < length) {
+            sb.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        sb.setLength(length);
+        sequence = sb.toString();
+        byte[] encoded = sequence.getBytes(StandardCharsets.US_ASCII);
+        bytes = ByteBuffer.wrap(encoded);
+        file = Files.createTempFile("arrows", ".txt");
+        Files.write(file, encoded);
+        matcher = new StreamMatcher(">>-->", "<--<<");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Алгоритм из Task2.main: подстрока из 5 символов на каждую позицию
+     */
+    @Benchmark
+    public int substringLoop() {
+        int count = 0;
+        for (int i = 0; i <= sequence.length() - 5; i++) {
+            String substring = sequence.substring(i, i + 5);
+            if (substring.equals(">>-->") || substring.equals("<--<<")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long arrowCounterFile() throws IOException {
+        return ArrowCounter.countFile(file, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public long streamMatcher() {
+        matcher.reset();
+        return matcher.feed(bytes.duplicate());
+    }
+}
@@ -0,0 +1,114 @@
+package HomeWork_5;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Преобразования Task1 на тексте из length строчных букв:
+ * исходный indexOf по строке клавиатуры на каждый символ, таблица KeyboardRing
+ * на массиве и KeyboardRing.transform через каналы с одним буфером.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyboardBenchmark {
+    private static final String KEYBOARD = "qwertyuiopasdfghjklzxcvbnm";
+
+    @Param({"1024", "1048576", "16777216"})
+    public int length;
+
+    private byte[] text;
+    private char[] chars;
+    private byte[] work;
+    private KeyboardRing ring;
+    private final WritableByteChannel sink = Channels.newChannel(OutputStream.nullOutputStream());
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        text = new byte[length];
+        chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = (byte) KEYBOARD.charAt(random.nextInt(KEYBOARD.length()));
+            chars[i] = (char) text[i];
+        }
+        work = new byte[length];
+        ring = new KeyboardRing(false, KeyboardRing.QWERTY);
+    }
+
+    /**
+     * Алгоритм из Task1.main для каждого символа
+     */
+    @Benchmark
+    public char[] indexOfPerChar() {
+        char[] out = new char[chars.length];
+        for (int i = 0; i < chars.length; i++) {
+            int index = KEYBOARD.indexOf(chars[i]);
+            out[i] = KEYBOARD.charAt((index - 1 + KEYBOARD.length()) % KEYBOARD.length());
+        }
+        return out;
+    }
+
+    @Benchmark
+    public byte[] ringArray() {
+        System.arraycopy(text, 0, work, 0, length);
+        ring.apply(work, 0, length);
+        return work;
+    }
+
+    @Benchmark
+    public long ringTransform() throws IOException {
+        return ring.transform(new ArrayChannel(text), sink);
+    }
+
+    /**
+     * Канал чтения из массива без копирования всего входа
+     */
+    private static final class ArrayChannel implements ReadableByteChannel {
+        private final ByteBuffer data;
+
+        ArrayChannel(byte[] bytes) {
+            data = ByteBuffer.wrap(bytes);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!data.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(dst.remaining(), data.remaining());
+            dst.put(data.slice().limit(n));
+            data.position(data.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
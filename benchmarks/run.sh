@@ -0,0 +1,36 @@
+#!/bin/sh
+# Запуск бенчмарков JMH (см. Readme в этом каталоге)
+#   benchmarks/run.sh [режим] [регулярное выражение JMH] [параметры JMH]...
+# Режимы:
+#   quick    - короткий прогон (1 форк, 2+3 итерации), результат в target/jmh-result.csv
+#   full     - прогон с настройками из аннотаций бенчмарков
+#   gc       - quick с профилировщиком gc: скорость выделения памяти (gc.alloc.rate, gc.alloc.rate.norm)
+#   baseline - quick с профилировщиком gc, результат записывается в benchmarks/baseline/jmh-result.csv
+#   compare  - gc, затем сравнение с benchmarks/baseline/jmh-result.csv
+set -e
+cd "$(dirname "$0")/.."
+MODE=${1:-quick}
+[ $# -gt 0 ] && shift
+JAR=target/benchmarks.jar
+RESULT=target/jmh-result.csv
+BASELINE=benchmarks/baseline/jmh-result.csv
+QUICK="-f 1 -wi 2 -i 3 -w 1s -r 1s"
+
+if [ ! -f "$JAR" ] || [ -n "$(find src benchmarks -name '*.java' -newer "$JAR" | head -1)" ]; then
+    mvn -B -q -Pjmh package -DskipTests
+fi
+
+case "$MODE" in
+    quick)    java -jar "$JAR" $QUICK -rf csv -rff "$RESULT" "$@" ;;
+    full)     java -jar "$JAR" -rf csv -rff "$RESULT" "$@" ;;
+    gc)       java -jar "$JAR" $QUICK -prof gc -rf csv -rff "$RESULT" "$@" ;;
+    baseline) java -jar "$JAR" $QUICK -prof gc -rf csv -rff "$BASELINE" "$@" ;;
+    compare)
+        java -jar "$JAR" $QUICK -prof gc -rf csv -rff "$RESULT" "$@"
+        java benchmarks/BaselineCompare.java "$BASELINE" "$RESULT"
+        ;;
+    *)
+        echo "Неизвестный режим: $MODE (quick, full, gc, baseline, compare)"
+        exit 2
+        ;;
+esac
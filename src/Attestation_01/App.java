@@ -1,23 +1,36 @@
 package Attestation_01;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import Common.OutputSink;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 /**
- * Класс, представляющий покупателя
+ * Класс, представляющий покупателя.
+ * Баланс и пакет изменяются под монитором самого покупателя (блокировка на покупателя),
+ * поэтому покупки одного покупателя из разных потоков не приводят к уходу в минус.
  */
 class Person {
     private String name; // Имя покупателя
-    private double money; // Количество денег
-    private final List<Product> bag = new ArrayList<>(); // Список купленных продуктов
+    private long money; // Количество денег в копейках (см. Money)
+    private final ProductBag bag; // Пакет купленных продуктов
 
     /**
      * Конструктор покупателя
      * @param name Имя покупателя
-     * @param money Начальная сумма денег
+     * @param money Начальная сумма денег в копейках
      */
-    public Person(String name, double money) {
+    public Person(String name, long money) {
+        this(name, money, false);
+    }
+
+    /**
+     * Конструктор покупателя с выбором вида пакета
+     * @param name Имя покупателя
+     * @param money Начальная сумма денег в копейках
+     * @param compactBag true - хранить покупки в компактном пакете (CompactBag)
+     */
+    public Person(String name, long money, boolean compactBag) {
+        this.bag = compactBag ? new CompactBag() : new ProductBag.ListBag();
         setName(name); // Валидация и установка имени
         setMoney(money); // Валидация и установка денег
     }
@@ -32,67 +45,139 @@ class Person {
      * @throws IllegalArgumentException При нарушении условий валидации
      */
     public void setName(String name) {
-        if (name == null || name.trim().isEmpty()) {
-            throw new IllegalArgumentException("Имя не может быть пустым");
-        }
-        if (name.trim().length() < 3) {
-            throw new IllegalArgumentException("Имя не может быть короче 3 символов");
-        }
+        RecordValidator.require(RecordValidator.checkPersonName(name));
         this.name = name.trim(); // Удаление лишних пробелов
     }
 
-    public double getMoney() {
+    /**
+     * @return Сумма денег в копейках
+     */
+    public synchronized long getMoney() {
         return money;
     }
 
     /**
      * Установка суммы денег с валидацией
-     * @param money Сумма денег
+     * @param money Сумма денег в копейках
      * @throws IllegalArgumentException При отрицательном значении
      */
-    public void setMoney(double money) {
-        if (money < 0) {
-            throw new IllegalArgumentException("Деньги не могут быть отрицательными");
-        }
+    public synchronized void setMoney(long money) {
+        RecordValidator.require(RecordValidator.checkMoney(money));
         this.money = money;
     }
 
     /**
+     * Для обычного пакета - немодифицируемое представление без копирования (O(1)), которое видит
+     * и последующие покупки, поэтому обходить его во время покупок из других потоков нельзя.
+     * Для компактного пакета (CompactBag) - копия, которая строится за время, пропорциональное размеру пакета.
      * @return Немодифицируемый список купленных продуктов
      */
-    public List<Product> getBag() {
-        return Collections.unmodifiableList(bag);
+    public synchronized List<Product> getBag() {
+        return bag.toList();
     }
 
     /**
-     * Покупка продукта
+     * Пакет покупателя без копирования (для записи снимка, когда покупки не выполняются)
+     */
+    synchronized ProductBag bag() {
+        return bag;
+    }
+
+    /**
+     * Покупка продукта с сообщением в общий вывод (OutputSink)
      * @param product Продукт для покупки
      */
     public void buy(Product product) {
-        // Проверка достаточности средств
-        if (money >= product.getPrice()) {
-            bag.add(product); // Добавление в "пакет"
-            money -= product.getPrice(); // Списание средств
-            System.out.println(name + " купил " + product.getName());
-        } else {
-            System.out.println(name + " не может позволить себе " + product.getName());
+        buy(product, -1, -1, null);
+    }
+
+    /**
+     * Покупка продукта с сообщением в общий вывод и учётом успеха или отказа в аналитике
+     * @param customerId Номер покупателя в CustomerIndex
+     * @param productId Номер продукта в ProductCatalog
+     * @param analytics Аналитика покупок или null
+     */
+    void buy(Product product, int customerId, int productId, PurchaseAnalytics analytics) {
+        long price = product.getPrice(); // Цена считается вне блокировки
+        boolean bought = tryBuy(product, price);
+        if (analytics != null) {
+            if (bought) {
+                analytics.purchased(customerId, productId, price);
+            } else {
+                analytics.rejected(customerId, productId);
+            }
+        }
+        OutputSink out = OutputSink.current();
+        if (out.enabled()) {
+            out.commit(out.line().append(name).append(bought ? " купил " : " не может позволить себе ").append(product.getName()));
         }
     }
 
+    /**
+     * Покупка продукта без вывода сообщений (для пакетной обработки)
+     * @param product Продукт для покупки
+     * @return true, если продукт куплен
+     */
+    public boolean tryBuy(Product product) {
+        return tryBuy(product, product.getPrice()); // Цена считается вне блокировки
+    }
+
+    /**
+     * Покупка продукта по заранее рассчитанной цене (например, из ProductCatalog)
+     * @param product Продукт для покупки
+     * @param price Цена в копейках
+     * @return true, если продукт куплен
+     */
+    boolean tryBuy(Product product, long price) {
+        long start = PurchaseMetrics.ENABLED ? System.nanoTime() : 0;
+        boolean bought = charge(product, price);
+        if (PurchaseMetrics.ENABLED) {
+            PurchaseMetrics.purchase(bought, start);
+        }
+        return bought;
+    }
+
+    /**
+     * Проверка и списание без учёта в метриках (для повтора журнала при восстановлении)
+     * @return true, если денег хватило и продукт добавлен в пакет
+     */
+    synchronized boolean charge(Product product, long price) {
+        // Проверка и списание выполняются атомарно под монитором покупателя
+        if (Money.compare(money, price) < 0) {
+            return false;
+        }
+        bag.add(product); // Добавление в "пакет"
+        money = Money.subtract(money, price); // Списание средств
+        return true;
+    }
+
     /**
      * Форматированное строковое представление покупателя
      * @return Строка с именем и списком покупок
      */
     @Override
     public String toString() {
-        if (bag.isEmpty()) {
-            return name + " - Ничего не куплено";
+        StringBuilder sb = new StringBuilder();
+        try {
+            appendTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder не бросает IOException
         }
-        List<String> productNames = new ArrayList<>();
-        for (Product product : bag) {
-            productNames.add(product.getName()); // Сбор названий продуктов
+        return sb.toString();
+    }
+
+    /**
+     * Запись того же представления, что и toString(), сразу в поток вывода
+     * @param out Куда писать
+     */
+    public synchronized void appendTo(Appendable out) throws IOException {
+        out.append(name);
+        if (bag.isEmpty()) {
+            out.append(" - Ничего не куплено");
+            return;
         }
-        return name + " - " + String.join(", ", productNames);
+        out.append(" - ");
+        bag.appendNamesTo(out); // Названия продуктов через запятую
     }
 
     // Переопределение equals и hashCode для корректного сравнения объектов
@@ -101,14 +186,33 @@ class Person {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Person person = (Person) o;
-        return Double.compare(money, person.money) == 0 &&
-                Objects.equals(name, person.name) &&
-                Objects.equals(bag, person.bag);
+        // Мониторы двух покупателей берутся по очереди, а не одновременно
+        long myMoney;
+        int myBagHash;
+        synchronized (this) {
+            myMoney = money;
+            myBagHash = bag.contentHash();
+        }
+        ProductBag otherBag;
+        synchronized (person) {
+            if (person.money != myMoney || person.bag.contentHash() != myBagHash) {
+                return false; // Быстрый отказ без копирования пакета
+            }
+            otherBag = person.bag.copy();
+        }
+        synchronized (this) {
+            return money == myMoney &&
+                    Objects.equals(name, person.name) &&
+                    bag.sameContents(otherBag);
+        }
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(name, money, bag);
+    public synchronized int hashCode() {
+        // То же значение, что и Objects.hash(name, money, bag), но без упаковки и обхода пакета
+        int result = 31 + Objects.hashCode(name);
+        result = 31 * result + Long.hashCode(money);
+        return 31 * result + bag.contentHash();
     }
 }
 
@@ -117,9 +221,9 @@ class Person {
  */
 class Product {
     private String name;
-    private double price;
+    private long price; // Цена в копейках
 
-    public Product(String name, double price) {
+    public Product(String name, long price) {
         setName(name);
         setPrice(price);
     }
@@ -135,37 +239,44 @@ class Product {
      * - Не состоит только из цифр
      */
     public void setName(String name) {
-        if (name == null || name.trim().isEmpty()) {
-            throw new IllegalArgumentException("Название продукта не может быть пустым");
-        }
-        String trimmedName = name.trim();
-        if (trimmedName.length() < 3) {
-            throw new IllegalArgumentException("Название продукта не может быть короче 3 символов");
-        }
-        if (trimmedName.matches("^\\d+$")) {
-            throw new IllegalArgumentException("Название продукта не может состоять только из цифр");
-        }
-        this.name = trimmedName;
+        RecordValidator.require(RecordValidator.checkProductName(name));
+        this.name = name.trim();
+    }
+
+    /**
+     * @return Цена в копейках
+     */
+    public long getPrice() {
+        return price;
+    }
+
+    /**
+     * @return Базовая цена в копейках без учета скидки
+     */
+    public final long getBasePrice() {
+        return price;
     }
 
-    public double getPrice() {
+    /**
+     * Цена на заданный день (LocalDate.toEpochDay()); у обычного продукта не зависит от даты
+     */
+    public long getPrice(long epochDay) {
         return price;
     }
 
     /**
      * Установка цены продукта с валидацией
      * - Должна быть положительной (>0)
+     * @param price Цена в копейках
      */
-    public void setPrice(double price) {
-        if (price <= 0) {
-            throw new IllegalArgumentException("Цена продукта должна быть положительной");
-        }
+    public void setPrice(long price) {
+        RecordValidator.require(RecordValidator.checkPrice(price));
         this.price = price;
     }
 
     @Override
     public String toString() {
-        return name + " (Цена: " + price + ")";
+        return name + " (Цена: " + Money.format(price) + ")";
     }
 
     @Override
@@ -173,13 +284,13 @@ class Product {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Product product = (Product) o;
-        return Double.compare(price, product.price) == 0 &&
+        return price == product.price &&
                 Objects.equals(name, product.name);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, price);
+        return 31 * (31 + Objects.hashCode(name)) + Long.hashCode(price);
     }
 }
 
@@ -190,65 +301,125 @@ class Product {
  * - Срок действия скидки
  */
 class DiscountProduct extends Product {
-    private double discount;
+    private long discount; // Скидка в копейках
     private String validUntil; // Дата в формате "dd.MM.yyyy"
+    private long validUntilDay = DiscountDate.NO_DISCOUNT; // Последний день действия скидки (LocalDate.toEpochDay())
+    private long discountedPrice; // Цена со скидкой, пересчитывается только при изменении полей
+    private DiscountSchedule schedule; // Несколько окон скидок, null - одно окно из discount и validUntil
 
-    public DiscountProduct(String name, double price, double discount, String validUntil) {
+    public DiscountProduct(String name, long price, long discount, String validUntil) {
         super(name, price);
         setDiscount(discount);
         setValidUntil(validUntil);
     }
 
-    public double getDiscount() {
+    /**
+     * Продукт с расписанием скидок; discount и validUntil описывают первое окно расписания
+     */
+    public DiscountProduct(String name, long price, DiscountSchedule schedule) {
+        super(name, price);
+        this.discount = schedule.amount(0);
+        this.validUntilDay = schedule.end(0);
+        this.validUntil = DiscountDate.format(validUntilDay);
+        this.schedule = schedule;
+        updateDiscountedPrice();
+    }
+
+    @Override
+    public void setPrice(long price) {
+        super.setPrice(price);
+        updateDiscountedPrice();
+    }
+
+    public long getDiscount() {
         return discount;
     }
 
     /**
      * Установка размера скидки с валидацией
      * - Не может быть отрицательной
+     * - Заменяет расписание скидок одним окном
+     * @param discount Скидка в копейках
      */
-    public void setDiscount(double discount) {
-        if (discount < 0) {
-            throw new IllegalArgumentException("Скидка не может быть отрицательной");
-        }
+    public void setDiscount(long discount) {
+        RecordValidator.require(RecordValidator.checkDiscount(discount));
         this.discount = discount;
+        this.schedule = null;
+        updateDiscountedPrice();
     }
 
     public String getValidUntil() {
         return validUntil;
     }
 
+    /**
+     * Установка срока действия скидки.
+     * Дата разбирается один раз; при неверном формате скидка считается недействительной.
+     */
     public void setValidUntil(String validUntil) {
         this.validUntil = validUntil;
+        this.schedule = null;
+        this.validUntilDay = DiscountDate.parse(validUntil);
+    }
+
+    /**
+     * @return Последний день действия скидки (LocalDate.toEpochDay()) или Long.MIN_VALUE, если скидки нет
+     */
+    public long getValidUntilDay() {
+        return validUntilDay;
     }
 
     /**
-     * Получение актуальной цены с учетом скидки
+     * @return Расписание скидок или null, если скидка задана одним сроком
+     */
+    public DiscountSchedule getSchedule() {
+        return schedule;
+    }
+
+    private void updateDiscountedPrice() {
+        // Применяем скидку, цена не может быть отрицательной
+        discountedPrice = Math.max(Money.subtract(super.getPrice(), discount), 0);
+    }
+
+    /**
+     * Получение актуальной цены с учетом скидки на дату из PriceClock
+     */
+    @Override
+    public long getPrice() {
+        return getPrice(PriceClock.current().today());
+    }
+
+    /**
+     * Цена на заданный день
      * - Если скидка действует: цена = базовая цена - скидка (но не менее 0)
      * - Если срок скидки истек: возвращает базовую цену
      */
     @Override
-    public double getPrice() {
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
-            LocalDate discountDate = LocalDate.parse(validUntil, formatter);
-
-            if (LocalDate.now().isAfter(discountDate)) {
-                return super.getPrice(); // Скидка недействительна
-            }
-        } catch (DateTimeParseException e) {
-            return super.getPrice(); // Неверный формат даты
+    public long getPrice(long epochDay) {
+        if (PurchaseMetrics.ENABLED) {
+            long start = System.nanoTime();
+            long price = priceOn(epochDay);
+            PurchaseMetrics.priced(start);
+            return price;
         }
+        return priceOn(epochDay);
+    }
 
-        // Применяем скидку
-        double discountedPrice = super.getPrice() - discount;
-        return Math.max(discountedPrice, 0); // Не может быть отрицательной
+    private long priceOn(long epochDay) {
+        if (schedule != null) {
+            // Окно, в которое попадает день, ищется двоичным поиском
+            return Math.max(Money.subtract(super.getPrice(), schedule.discount(epochDay)), 0);
+        }
+        return epochDay <= validUntilDay ? discountedPrice : super.getPrice();
     }
 
     @Override
     public String toString() {
-        return super.getName() + " (Базовая цена: " + super.getPrice() +
-                ", Скидка: " + discount +
+        if (schedule != null) {
+            return super.getName() + " (Базовая цена: " + Money.format(super.getPrice()) + ", Скидки: " + schedule + ")";
+        }
+        return super.getName() + " (Базовая цена: " + Money.format(super.getPrice()) +
+                ", Скидка: " + Money.format(discount) +
                 ", Действует до: " + validUntil + ")";
     }
 }
@@ -258,9 +429,34 @@ class DiscountProduct extends Product {
  */
 public class App {
     public static void main(String[] args) {
+        // Пакетный режим: App --batch [параметры] [покупатели продукты покупки], см. BatchIngest
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchIngest.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // Сервис покупок по TCP на 127.0.0.1: App --serve [параметры], см. PurchaseService
+        if (args.length > 0 && args[0].equals("--serve")) {
+            PurchaseService.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        // Аналитика покупок в интерактивном режиме: App --analytics N (N - размер топа продуктов)
+        int analyticsTop = 0;
+        if (args.length == 2 && args[0].equals("--analytics")) {
+            try {
+                analyticsTop = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                analyticsTop = 0;
+            }
+            if (analyticsTop < 1) {
+                System.out.println("Использование: App [--analytics N], N - положительное число");
+                return;
+            }
+        }
+
         Scanner scanner = new Scanner(System.in);
-        Map<String, Person> people = new HashMap<>();
-        Map<String, Product> products = new HashMap<>();
+        CustomerIndex people = new CustomerIndex();
+        ProductCatalog products = new ProductCatalog();
 
         // Ввод покупателей
         System.out.println("Введите покупателей (Формат: Имя = Сумма). Для завершения введите пустую строку:");
@@ -271,13 +467,14 @@ public class App {
             try {
                 String[] parts = input.split("=");
                 if (parts.length != 2) {
+                    PurchaseMetrics.inputError(RecordValidator.CUSTOMER_FORMAT);
                     System.out.println("Ошибка формата. Используйте: Имя = Сумма");
                     continue;
                 }
                 String name = parts[0].trim();
-                double money = Double.parseDouble(parts[1].trim());
+                long money = Money.parse(parts[1].trim());
                 Person person = new Person(name, money);
-                people.put(name, person);
+                people.put(person);
             } catch (Exception e) {
                 System.out.println(e.getMessage());
                 return;
@@ -307,12 +504,12 @@ public class App {
                     }
 
                     String name = namePrice[0].trim();
-                    double price = Double.parseDouble(namePrice[1].trim());
-                    double discount = Double.parseDouble(mainParts[1].trim());
+                    long price = Money.parse(namePrice[1].trim());
+                    long discount = Money.parse(mainParts[1].trim());
                     String validUntil = mainParts[2].trim();
 
                     DiscountProduct product = new DiscountProduct(name, price, discount, validUntil);
-                    products.put(name, product);
+                    products.put(product);
                 } else {
                     // Обработка обычного продукта
                     String[] parts = input.split("=");
@@ -321,9 +518,9 @@ public class App {
                     }
 
                     String name = parts[0].trim();
-                    double price = Double.parseDouble(parts[1].trim());
+                    long price = Money.parse(parts[1].trim());
                     Product product = new Product(name, price);
-                    products.put(name, product);
+                    products.put(product);
                 }
             } catch (Exception e) {
                 System.out.println(e.getMessage());
@@ -331,40 +528,75 @@ public class App {
             }
         }
 
-        // Обработка покупок
+        // Обработка покупок: сообщения о покупках, ошибки и результаты идут в общий вывод в порядке появления
         System.out.println("Введите покупки (Формат: Имя покупателя - Название продукта). Для завершения введите END:");
+        OutputSink out = OutputSink.current();
+        PurchaseAnalytics analytics = analyticsTop > 0 ? new PurchaseAnalytics(products.size(), people.size(), analyticsTop) : null;
         while (true) {
             String input = scanner.nextLine().trim();
             if (input.equals("END")) break;
 
             try {
-                String[] parts = input.split("-");
-                if (parts.length != 2) {
-                    System.out.println("Ошибка формата. Используйте: Имя покупателя - Название продукта");
+                // Разбор как у split("-"), но поиск идёт по диапазонам строки без подстрок
+                int end = input.length();
+                while (end > 0 && input.charAt(end - 1) == '-') end--; // Пустые хвостовые части отбрасываются
+                int dash = input.indexOf('-');
+                if (dash < 0 || dash >= end || input.lastIndexOf('-', end - 1) != dash) {
+                    PurchaseMetrics.inputError(RecordValidator.PURCHASE_FORMAT);
+                    out.commit(RecordValidator.message(RecordValidator.PURCHASE_FORMAT));
                     continue;
                 }
 
-                String personName = parts[0].trim();
-                String productName = parts[1].trim();
-                Person person = people.get(personName);
-                Product product = products.get(productName);
+                int personId = people.find(input, trimStart(input, 0, dash), trimEnd(input, 0, dash));
+                int productId = products.find(input, trimStart(input, dash + 1, end), trimEnd(input, dash + 1, end));
 
-                if (person == null || product == null) {
-                    System.out.println("Ошибка: Покупатель или продукт не найдены");
+                if (personId < 0 || productId < 0) {
+                    PurchaseMetrics.inputError(RecordValidator.NOT_FOUND);
+                    out.commit(RecordValidator.message(RecordValidator.NOT_FOUND));
                     continue;
                 }
 
-                person.buy(product);
+                people.person(personId).buy(products.product(productId), personId, productId, analytics);
             } catch (Exception e) {
-                System.out.println(e.getMessage());
+                out.commit(String.valueOf(e.getMessage()));
+                out.flush();
                 return;
             }
         }
 
-        // Вывод результатов
-        System.out.println("\nРезультаты:");
-        for (Person person : people.values()) {
-            System.out.println(person);
+        // Вывод результатов: каждый покупатель пишется сразу в буфер строки, без toString()
+        out.commit("\nРезультаты:");
+        try {
+            for (int id = 0; id < people.size(); id++) {
+                StringBuilder line = out.line();
+                people.person(id).appendTo(line);
+                out.commit(line);
+            }
+            if (analytics != null) {
+                StringBuilder line = out.line();
+                analytics.appendTo(line, analyticsTop, products, people);
+                line.setLength(line.length() - 1); // commit добавляет перевод строки сам
+                out.commit(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder не бросает IOException
         }
+        out.flush();
+    }
+
+    /**
+     * Начало диапазона [from, to) строки без пробельных символов (как у trim())
+     */
+    private static int trimStart(String s, int from, int to) {
+        while (from < to && s.charAt(from) <= ' ') from++;
+        return from;
+    }
+
+    /**
+     * Конец диапазона [from, to) строки без пробельных символов (как у trim())
+     */
+    private static int trimEnd(String s, int from, int to) {
+        while (to > from && s.charAt(to - 1) <= ' ') to--;
+        return to;
     }
 }
\ No newline at end of file
@@ -0,0 +1,363 @@
+package Attestation_01;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Неинтерактивная пакетная обработка покупок.
+ * Принимает те же три раздела, что и интерактивный режим App (покупатели, продукты, покупки),
+ * либо из трёх файлов, либо из стандартного ввода подряд. Строки разбираются по байтам
+ * без split() и без создания строк на каждую покупку. Разбор покупок и их применение
+ * выполняются в разных потоках (см. PurchaseEngine).
+ * Входные данные ожидаются в кодировке UTF-8.
+ */
+final class BatchIngest {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final String USAGE = "Использование: App --batch [--date dd.MM.yyyy] [--threads N] [--compact-bags] [--replay]"
+            + " [--shards N] [--store каталог] [--snapshot-every N] [--analytics N] [покупатели продукты покупки]";
+
+    private final CustomerIndex people = new CustomerIndex();
+    private final ProductCatalog catalog = new ProductCatalog();
+    private final Options options;
+    private ValidationReport customerErrors = new ValidationReport("Покупатели");
+    private ValidationReport productErrors = new ValidationReport("Продукты");
+    private final ValidationReport purchaseErrors = new ValidationReport("Покупки");
+    private PurchaseStore store; // null - без хранилища
+    private PurchaseAnalytics analytics; // null - без аналитики
+    private long submitted; // Покупок, переданных на выполнение
+
+    /**
+     * Параметры пакетного режима
+     */
+    static final class Options {
+        LocalDate date; // Бизнес-дата, на которую оцениваются покупки, null - по системным часам
+        int threads = 1; // Потоков применения покупок
+        boolean compactBags; // Хранить покупки в CompactBag
+        boolean replay; // Покупки с датой: "Имя - Продукт @ dd.MM.yyyy"
+        int shards = 1; // Процессов-обработчиков, больше 1 - см. ShardedIngest
+        String[] files = new String[0]; // Файлы разделов (пусто - стандартный ввод)
+        Path store; // Каталог хранилища (снимок и журнал), null - только в памяти
+        long snapshotEvery = 1_000_000; // Записей журнала, после которых пишется новый снимок
+        int analyticsTop; // Сколько продуктов показать в аналитике, 0 - аналитика не ведётся
+
+        /**
+         * Разбор параметров командной строки
+         * @throws IllegalArgumentException При неверном параметре
+         */
+        static Options parse(String[] args) {
+            Options options = new Options();
+            int i = 0;
+            for (; i < args.length && args[i].startsWith("--"); i++) {
+                switch (args[i]) {
+                    // Бизнес-дата: все покупки пакета оцениваются на этот день
+                    case "--date":
+                        try {
+                            options.date = LocalDate.parse(value(args, i++), DATE_FORMAT);
+                        } catch (DateTimeParseException e) {
+                            throw new IllegalArgumentException("Неверная дата. Используйте формат dd.MM.yyyy");
+                        }
+                        break;
+                    // Количество потоков применения покупок
+                    case "--threads":
+                        options.threads = Integer.parseInt(value(args, i++));
+                        if (options.threads < 1) {
+                            throw new IllegalArgumentException("Количество потоков должно быть положительным");
+                        }
+                        break;
+                    case "--compact-bags":
+                        options.compactBags = true;
+                        break;
+                    // Воспроизведение истории: каждая покупка оценивается на свою дату
+                    case "--replay":
+                        options.replay = true;
+                        break;
+                    // Состояние восстанавливается из каталога и сохраняется в него
+                    case "--store":
+                        options.store = Paths.get(value(args, i++));
+                        break;
+                    // Аналитика покупок этого запуска: топ N продуктов по выручке, отказы
+                    case "--analytics":
+                        options.analyticsTop = Integer.parseInt(value(args, i++));
+                        if (options.analyticsTop < 1) {
+                            throw new IllegalArgumentException("Размер топа должен быть положительным");
+                        }
+                        break;
+                    // Покупатели делятся между несколькими процессами, см. ShardedIngest
+                    case "--shards":
+                        options.shards = Integer.parseInt(value(args, i++));
+                        if (options.shards < 1) {
+                            throw new IllegalArgumentException("Количество процессов должно быть положительным");
+                        }
+                        break;
+                    case "--snapshot-every":
+                        options.snapshotEvery = Long.parseLong(value(args, i++));
+                        if (options.snapshotEvery < 1) {
+                            throw new IllegalArgumentException("Период снимков должен быть положительным");
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Неизвестный параметр " + args[i]);
+                }
+            }
+            options.files = Arrays.copyOfRange(args, i, args.length);
+            if (options.files.length != 0 && options.files.length != 3) {
+                throw new IllegalArgumentException(USAGE);
+            }
+            if (options.shards > 1 && (options.store != null || options.analyticsTop > 0)) {
+                throw new IllegalArgumentException("Параметры --store и --analytics не поддерживаются вместе с --shards");
+            }
+            return options;
+        }
+
+        /**
+         * Установка бизнес-даты в PriceClock (без --date часы не меняются).
+         * Вызывается, когда параметры приняты и начинается обработка, а не при разборе,
+         * чтобы разбор отклонённых или вспомогательных параметров не менял цены всей программы.
+         */
+        void installClock() {
+            if (date != null) {
+                PriceClock.install(PriceClock.fixed(date));
+            }
+        }
+
+        private static String value(String[] args, int i) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Не указано значение для " + args[i]);
+            }
+            return args[i + 1];
+        }
+    }
+
+    BatchIngest(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        try {
+            if (options.shards > 1) {
+                new ShardedIngest(options).run(System.in, out);
+            } else {
+                new BatchIngest(options).run(System.in, out);
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка ввода-вывода: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Весь пакетный прогон: восстановление хранилища, три раздела ввода и отчёт
+     * @param in Вход всех разделов подряд, если файлы разделов не заданы
+     * @param out Куда писать ошибки, результаты и аналитику
+     */
+    void run(InputStream in, Writer out) throws IOException, InterruptedException {
+        options.installClock();
+        String[] files = options.files;
+        try (PurchaseStore store = options.store == null ? null : PurchaseStore.recover(options.store, people, catalog)) {
+            this.store = store;
+            if (files.length == 0) {
+                ByteLineReader reader = new ByteLineReader(in);
+                loadCustomers(reader);
+                loadProducts(reader);
+                processPurchases(reader);
+            } else {
+                load(files[0], files[1], files[2]);
+            }
+            writeErrors(out);
+            writeReport(out);
+            writeAnalytics(out);
+            out.flush();
+        }
+    }
+
+    private void load(String customers, String products, String purchases) throws IOException, InterruptedException {
+        try (InputStream c = new FileInputStream(customers)) {
+            loadCustomers(new ByteLineReader(c));
+        }
+        try (InputStream p = new FileInputStream(products)) {
+            loadProducts(new ByteLineReader(p));
+        }
+        try (InputStream s = new FileInputStream(purchases)) {
+            processPurchases(new ByteLineReader(s));
+        }
+    }
+
+    /**
+     * Загрузка покупателей до пустой строки или конца потока.
+     * Неверные строки не прерывают загрузку, а попадают в отчёт (см. RecordValidator).
+     */
+    void loadCustomers(ByteLineReader reader) throws IOException {
+        customerErrors = RecordValidator.loadCustomers(reader, people, options.compactBags);
+    }
+
+    /**
+     * Загрузка обычных и скидочных продуктов до пустой строки или конца потока
+     */
+    void loadProducts(ByteLineReader reader) throws IOException {
+        productErrors = RecordValidator.loadProducts(reader, catalog);
+    }
+
+    /**
+     * Обработка покупок до строки END или конца потока.
+     * Текущий поток разбирает строки, а PurchaseEngine применяет покупки в рабочих потоках.
+     * Неверные строки и неизвестные имена попадают в отчёт об ошибках.
+     * С хранилищем после каждых snapshotEvery переданных покупок движок дожидается их выполнения,
+     * и если журнал вырос до snapshotEvery записей, состояние сворачивается в новый снимок,
+     * так что журнал не растёт без ограничения и в течение одного прогона.
+     */
+    void processPurchases(ByteLineReader reader) throws IOException, InterruptedException {
+        if (store != null && customerErrors.accepted() + productErrors.accepted() > 0) {
+            // Журнал ссылается на номера покупателей и продуктов, поэтому новые записи сначала попадают в снимок
+            store.checkpoint(people, catalog);
+        }
+        if (options.analyticsTop > 0) {
+            analytics = new PurchaseAnalytics(catalog.size(), people.size(), options.analyticsTop);
+        }
+        PurchaseEngine engine = newEngine();
+        long sinceCheckpoint = store == null ? 0 : store.journal().records(); // Не больше, чем записей в журнале
+        try {
+            while (reader.next()) {
+                byte[] b = reader.buffer();
+                int from = Bytes.trimStart(b, reader.start(), reader.end());
+                int to = Bytes.trimEnd(b, from, reader.end());
+                if (Bytes.equalsAscii(b, from, to, "END")) break;
+
+                long day = PurchaseEngine.TODAY;
+                if (options.replay) {
+                    int at = Bytes.lastIndexOf(b, from, to, (byte) '@');
+                    day = at < 0 ? DiscountDate.NO_DISCOUNT : DiscountDate.parse(b, Bytes.trimStart(b, at + 1, to), to);
+                    if (day == DiscountDate.NO_DISCOUNT) {
+                        purchaseErrors.add(reader.lineNumber(), RecordValidator.EVENT_DATE);
+                        continue;
+                    }
+                    to = Bytes.trimEnd(b, from, at);
+                }
+                int partsEnd = Bytes.stripTrailing(b, from, to, (byte) '-');
+                int dash = Bytes.indexOf(b, from, partsEnd, (byte) '-');
+                if (dash < 0 || Bytes.indexOf(b, dash + 1, partsEnd, (byte) '-') >= 0) {
+                    purchaseErrors.add(reader.lineNumber(), RecordValidator.PURCHASE_FORMAT);
+                    continue;
+                }
+                int personFrom = Bytes.trimStart(b, from, dash);
+                int personId = people.find(b, personFrom, Bytes.trimEnd(b, personFrom, dash));
+                int productFrom = Bytes.trimStart(b, dash + 1, partsEnd);
+                int productId = catalog.find(b, productFrom, Bytes.trimEnd(b, productFrom, partsEnd));
+                if (personId < 0 || productId < 0) {
+                    purchaseErrors.add(reader.lineNumber(), RecordValidator.NOT_FOUND);
+                    continue;
+                }
+                engine.submit(personId, people.person(personId), productId, day);
+                submitted++;
+                if (store != null && ++sinceCheckpoint >= options.snapshotEvery) {
+                    // Граница пакетов: снимок пишется, только когда покупки не выполняются
+                    PurchaseEngine finished = engine;
+                    engine = null;
+                    finished.finish();
+                    sinceCheckpoint = checkpointIfDue();
+                    engine = newEngine();
+                }
+            }
+        } finally {
+            if (engine != null) {
+                engine.finish();
+            }
+        }
+        if (store != null) {
+            checkpointIfDue();
+        }
+    }
+
+    private PurchaseEngine newEngine() {
+        return new PurchaseEngine(options.threads, catalog, store == null ? null : store.journal(), analytics);
+    }
+
+    /**
+     * Фиксация журнала и новый снимок, если журнал вырос до snapshotEvery записей
+     * @return Записей в журнале после этого
+     */
+    private long checkpointIfDue() throws IOException {
+        store.journal().commit();
+        if (store.journal().records() >= options.snapshotEvery) {
+            store.checkpoint(people, catalog); // Журнал вырос: состояние сворачивается в новый снимок
+        }
+        return store.journal().records();
+    }
+
+    /**
+     * @return Покупок, переданных на выполнение (выполненных и отклонённых из-за баланса)
+     */
+    long submitted() {
+        return submitted;
+    }
+
+    CustomerIndex people() {
+        return people;
+    }
+
+    ProductCatalog catalog() {
+        return catalog;
+    }
+
+    ValidationReport customerErrors() {
+        return customerErrors;
+    }
+
+    ValidationReport productErrors() {
+        return productErrors;
+    }
+
+    ValidationReport purchaseErrors() {
+        return purchaseErrors;
+    }
+
+    /**
+     * Отчёт об отклонённых строках всех трёх разделов с номерами строк
+     */
+    void writeErrors(Writer out) throws IOException {
+        customerErrors.appendTo(out);
+        productErrors.appendTo(out);
+        purchaseErrors.appendTo(out);
+    }
+
+    /**
+     * Вывод итогового отчёта в том же виде, что и в интерактивном режиме:
+     * покупатели в порядке первого появления во вводе
+     */
+    void writeReport(Writer out) throws IOException {
+        out.write("\nРезультаты:\n");
+        for (int id = 0; id < people.size(); id++) {
+            people.person(id).appendTo(out);
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Вывод аналитики покупок: топ продуктов по выручке, покупатели топ-продукта и отказы
+     */
+    void writeAnalytics(Writer out) throws IOException {
+        if (analytics == null) {
+            return;
+        }
+        analytics.appendTo(out, options.analyticsTop, catalog, people);
+    }
+}
@@ -0,0 +1,156 @@
+package Attestation_01;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Буферизованное построчное чтение байтов без создания строк.
+ * После успешного {@link #next()} текущая строка лежит в {@link #buffer()}
+ * в диапазоне [{@link #start()}, {@link #end()}) без символа перевода строки.
+ * Буфер переиспользуется, поэтому диапазон действителен только до следующего вызова next().
+ * В нумерованном режиме ({@link #numbered(InputStream)}) каждая строка начинается с номера и табуляции:
+ * номер становится {@link #lineNumber()}, а строкой считается текст после табуляции.
+ */
+final class ByteLineReader {
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final InputStream in;
+    private byte[] buf;
+    private int pos; // Начало непрочитанных данных
+    private int limit; // Конец данных в буфере
+    private int start; // Начало текущей строки
+    private int end; // Конец текущей строки (не включительно)
+    private boolean eof;
+    private long lineNumber; // Номер текущей строки, начиная с 1
+    private boolean numbered; // Номер строки задан в ней самой
+
+    ByteLineReader(InputStream in) {
+        this(in, DEFAULT_CAPACITY);
+    }
+
+    ByteLineReader(InputStream in, int capacity) {
+        this.in = in;
+        this.buf = new byte[capacity];
+    }
+
+    /**
+     * Чтение строк вида "номер\tтекст", которые пишет {@link #writeNumbered}
+     */
+    static ByteLineReader numbered(InputStream in) {
+        ByteLineReader reader = new ByteLineReader(in);
+        reader.numbered = true;
+        return reader;
+    }
+
+    /**
+     * Запись строки [from, to) с номером для чтения через {@link #numbered(InputStream)}
+     * @param digits Рабочий буфер не короче 20 байтов
+     */
+    static void writeNumbered(OutputStream out, long lineNumber, byte[] b, int from, int to, byte[] digits) throws IOException {
+        int p = digits.length;
+        do {
+            digits[--p] = (byte) ('0' + lineNumber % 10);
+            lineNumber /= 10;
+        } while (lineNumber > 0);
+        out.write(digits, p, digits.length - p);
+        out.write('\t');
+        out.write(b, from, to - from);
+        out.write('\n');
+    }
+
+    byte[] buffer() {
+        return buf;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int end() {
+        return end;
+    }
+
+    long lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Переход к следующей строке
+     * @return false, если поток закончился
+     */
+    boolean next() throws IOException {
+        int scan = pos;
+        while (true) {
+            for (int i = scan; i < limit; i++) {
+                if (buf[i] == '\n') {
+                    start = pos;
+                    end = i;
+                    pos = i + 1;
+                    lineNumber++;
+                    if (numbered) {
+                        readNumber();
+                    }
+                    return true;
+                }
+            }
+            scan = limit - pos; // Уже просмотренная часть после сдвига
+            if (!fill()) {
+                if (pos == limit) {
+                    return false;
+                }
+                // Последняя строка без завершающего перевода строки
+                start = pos;
+                end = limit;
+                pos = limit;
+                lineNumber++;
+                if (numbered) {
+                    readNumber();
+                }
+                return true;
+            }
+            scan += pos;
+        }
+    }
+
+    /**
+     * Номер в начале нумерованной строки; строка без табуляции остаётся с порядковым номером
+     */
+    private void readNumber() {
+        int tab = Bytes.indexOf(buf, start, end, (byte) '\t');
+        if (tab < 0) return;
+        long n = 0;
+        for (int i = start; i < tab; i++) {
+            n = n * 10 + (buf[i] - '0');
+        }
+        lineNumber = n;
+        start = tab + 1;
+    }
+
+    /**
+     * Сдвиг непрочитанных данных в начало буфера и дочитывание из потока.
+     * При необходимости буфер увеличивается, чтобы вместить длинную строку.
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int remaining = limit - pos;
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, remaining);
+        } else if (remaining == buf.length) {
+            byte[] grown = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, grown, 0, remaining);
+            buf = grown;
+        }
+        pos = 0;
+        limit = remaining;
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+}
@@ -0,0 +1,78 @@
+package Attestation_01;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Вспомогательные операции над диапазонами байтов строки в кодировке UTF-8.
+ * Байты многобайтовых символов UTF-8 всегда больше 0x7F, поэтому поиск
+ * ASCII-разделителей и обрезка пробелов по байтам дают тот же результат, что и по символам.
+ */
+final class Bytes {
+    private Bytes() {
+    }
+
+    /**
+     * Первая позиция после пробельных символов (аналог String.trim())
+     */
+    static int trimStart(byte[] b, int from, int to) {
+        while (from < to && (b[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Конец диапазона без завершающих пробельных символов
+     */
+    static int trimEnd(byte[] b, int from, int to) {
+        while (to > from && (b[to - 1] & 0xFF) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * Конец диапазона без завершающих разделителей.
+     * String.split() отбрасывает пустые хвостовые части, поэтому "a-b-" делится так же, как "a-b".
+     */
+    static int stripTrailing(byte[] b, int from, int to, byte separator) {
+        while (to > from && b[to - 1] == separator) {
+            to--;
+        }
+        return to;
+    }
+
+    static int indexOf(byte[] b, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int lastIndexOf(byte[] b, int from, int to, byte value) {
+        for (int i = to - 1; i >= from; i--) {
+            if (b[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean equalsAscii(byte[] b, int from, int to, String ascii) {
+        if (to - from != ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (b[from + i] != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String decode(byte[] b, int from, int to) {
+        return new String(b, from, to - from, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,196 @@
+package Attestation_01;
+
+import java.util.Arrays;
+
+/**
+ * Компактный пакет для покупателей с большим числом покупок.
+ * Каждый различный продукт получает локальный номер.
+ * Порядок покупок (нужен для toString и сравнения) хранится отрезками: номер продукта и сколько раз
+ * подряд он куплен. Повторные покупки того же продукта увеличивают длину последнего отрезка
+ * и не занимают дополнительной памяти, а номера и длины отрезков лежат в массивах наименьшей
+ * нужной ширины (см. PackedInts). Поэтому даже при чередовании продуктов (A, B, A, B...)
+ * покупка занимает 2 байта, пока различных продуктов не больше 256 и отрезки короче 256,
+ * вместо ссылки на каждую покупку в ListBag.
+ */
+final class CompactBag extends ProductBag {
+    private Product[] distinct = new Product[4]; // Различные продукты по локальному номеру
+    private int distinctCount;
+    private int[] slots = new int[8]; // Открытая адресация: локальный номер + 1, 0 - пусто
+
+    private final PackedInts runIds; // Локальный номер продукта в отрезке
+    private final PackedInts runLengths; // Длина отрезка
+
+    CompactBag() {
+        runIds = new PackedInts(4);
+        runLengths = new PackedInts(4);
+    }
+
+    private CompactBag(CompactBag source) {
+        distinct = Arrays.copyOf(source.distinct, source.distinct.length);
+        distinctCount = source.distinctCount;
+        slots = source.slots.clone();
+        runIds = new PackedInts(source.runIds);
+        runLengths = new PackedInts(source.runLengths);
+        hash = source.hash;
+        size = source.size;
+    }
+
+    /**
+     * Массив неотрицательных int наименьшей нужной ширины: byte, пока все значения меньше 256,
+     * затем char (меньше 65536), затем int. Ширина увеличивается при записи большего значения.
+     */
+    private static final class PackedInts {
+        private byte[] bytes;
+        private char[] chars;
+        private int[] ints;
+        int size;
+
+        PackedInts(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        PackedInts(PackedInts source) {
+            bytes = source.bytes == null ? null : source.bytes.clone();
+            chars = source.chars == null ? null : source.chars.clone();
+            ints = source.ints == null ? null : source.ints.clone();
+            size = source.size;
+        }
+
+        int get(int i) {
+            if (bytes != null) return bytes[i] & 0xFF;
+            if (chars != null) return chars[i];
+            return ints[i];
+        }
+
+        void set(int i, int value) {
+            widenFor(value);
+            if (bytes != null) {
+                bytes[i] = (byte) value;
+            } else if (chars != null) {
+                chars[i] = (char) value;
+            } else {
+                ints[i] = value;
+            }
+        }
+
+        void add(int value) {
+            if (size == capacity()) {
+                int grown = size * 2;
+                if (bytes != null) {
+                    bytes = Arrays.copyOf(bytes, grown);
+                } else if (chars != null) {
+                    chars = Arrays.copyOf(chars, grown);
+                } else {
+                    ints = Arrays.copyOf(ints, grown);
+                }
+            }
+            set(size++, value);
+        }
+
+        private int capacity() {
+            return bytes != null ? bytes.length : chars != null ? chars.length : ints.length;
+        }
+
+        private void widenFor(int value) {
+            if (bytes != null && value > 0xFF) {
+                if (value <= 0xFFFF) {
+                    chars = new char[bytes.length];
+                    for (int i = 0; i < size; i++) {
+                        chars[i] = (char) (bytes[i] & 0xFF);
+                    }
+                } else {
+                    ints = new int[bytes.length];
+                    for (int i = 0; i < size; i++) {
+                        ints[i] = bytes[i] & 0xFF;
+                    }
+                }
+                bytes = null;
+            } else if (chars != null && value > 0xFFFF) {
+                ints = new int[chars.length];
+                for (int i = 0; i < size; i++) {
+                    ints[i] = chars[i];
+                }
+                chars = null;
+            }
+        }
+    }
+
+    @Override
+    protected void append(Product product) {
+        appendRun(product, 1);
+    }
+
+    @Override
+    protected void appendRun(Product product, int count) {
+        int runs = runIds.size;
+        if (runs > 0 && distinct[runIds.get(runs - 1)] == product) {
+            runLengths.set(runs - 1, runLengths.get(runs - 1) + count); // Тот же продукт подряд
+            return;
+        }
+        int id = localId(product);
+        runIds.add(id);
+        runLengths.add(count);
+    }
+
+    /**
+     * Локальный номер продукта (по ссылке); новый продукт получает следующий номер
+     */
+    private int localId(Product product) {
+        int mask = slots.length - 1;
+        int i = mix(System.identityHashCode(product)) & mask;
+        while (slots[i] != 0) {
+            int id = slots[i] - 1;
+            if (distinct[id] == product) {
+                return id;
+            }
+            i = (i + 1) & mask;
+        }
+        if (distinctCount == distinct.length) {
+            distinct = Arrays.copyOf(distinct, distinctCount * 2);
+        }
+        int id = distinctCount++;
+        distinct[id] = product;
+        slots[i] = id + 1;
+        if (distinctCount * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < distinctCount; id++) {
+            int i = mix(System.identityHashCode(distinct[id])) & mask;
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = id + 1;
+        }
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    int runCount() {
+        return runIds.size;
+    }
+
+    @Override
+    Product runProduct(int run) {
+        return distinct[runIds.get(run)];
+    }
+
+    @Override
+    int runLength(int run) {
+        return runLengths.get(run);
+    }
+
+    @Override
+    ProductBag copy() {
+        return new CompactBag(this);
+    }
+}
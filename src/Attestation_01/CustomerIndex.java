@@ -0,0 +1,81 @@
+package Attestation_01;
+
+import java.util.Arrays;
+
+/**
+ * Покупатели с плотными номерами в порядке первого появления.
+ * Поиск по имени идёт через NameTable прямо по входным байтам или символам.
+ */
+final class CustomerIndex {
+    private final NameTable names = new NameTable();
+    private Person[] people = new Person[16];
+    private long[] firstLines = new long[16]; // Номер строки ввода, где покупатель появился впервые (0 - неизвестен)
+
+    int size() {
+        return names.size();
+    }
+
+    /**
+     * Добавление или замена покупателя (как HashMap.put по имени)
+     * @return Номер покупателя
+     */
+    int put(Person person) {
+        return store(names.intern(person.getName()), person);
+    }
+
+    /**
+     * То же, что {@link #put(Person)}, но имя уже есть во входном буфере в UTF-8
+     * @return Номер покупателя
+     */
+    int put(byte[] b, int nameFrom, int nameTo, Person person) {
+        return store(names.intern(b, nameFrom, nameTo), person);
+    }
+
+    /**
+     * То же, что {@link #put(byte[], int, int, Person)}, с номером строки ввода,
+     * который запоминается для нового покупателя (см. {@link #firstLine(int)})
+     */
+    int put(byte[] b, int nameFrom, int nameTo, Person person, long lineNumber) {
+        int size = names.size();
+        int id = store(names.intern(b, nameFrom, nameTo), person);
+        if (id == size) {
+            firstLines[id] = lineNumber;
+        }
+        return id;
+    }
+
+    private int store(int id, Person person) {
+        if (id >= people.length) {
+            int capacity = Math.max(id + 1, people.length * 2);
+            people = Arrays.copyOf(people, capacity);
+            firstLines = Arrays.copyOf(firstLines, capacity);
+        }
+        people[id] = person;
+        return id;
+    }
+
+    /**
+     * @return Номер покупателя или -1
+     */
+    int find(byte[] b, int from, int to) {
+        return names.find(b, from, to);
+    }
+
+    /**
+     * @return Номер покупателя или -1
+     */
+    int find(CharSequence s, int from, int to) {
+        return names.find(s, from, to);
+    }
+
+    Person person(int id) {
+        return people[id];
+    }
+
+    /**
+     * @return Номер строки ввода, где покупатель появился впервые, или 0, если он добавлен не из ввода
+     */
+    long firstLine(int id) {
+        return firstLines[id];
+    }
+}
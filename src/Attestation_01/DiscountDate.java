@@ -0,0 +1,98 @@
+package Attestation_01;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Разбор срока скидки в формате dd.MM.yyyy в номер дня (LocalDate.toEpochDay()) без создания объектов.
+ * Результат совпадает с LocalDate.parse(text, DateTimeFormatter.ofPattern("dd.MM.yyyy")):
+ * ровно две цифры дня, две цифры месяца и четыре цифры года (год от 0001),
+ * а день, которого нет в месяце (например, 31.04), заменяется последним днём месяца.
+ */
+final class DiscountDate {
+    static final long NO_DISCOUNT = Long.MIN_VALUE; // Скидка не действует ни в один день
+    private static final long DAYS_0000_TO_1970 = 719_528;
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private DiscountDate() {
+    }
+
+    /**
+     * @return Номер дня или NO_DISCOUNT, если дата не указана или записана неверно
+     */
+    static long parse(CharSequence text) {
+        if (text == null || text.length() != 10 || text.charAt(2) != '.' || text.charAt(5) != '.') {
+            return NO_DISCOUNT;
+        }
+        int day = digits(text.charAt(0), text.charAt(1));
+        int month = digits(text.charAt(3), text.charAt(4));
+        int year = digits(text.charAt(6), text.charAt(7)) * 100 + digits(text.charAt(8), text.charAt(9));
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * То же, что {@link #parse(CharSequence)}, по диапазону байтов
+     */
+    static long parse(byte[] b, int from, int to) {
+        if (to - from != 10 || b[from + 2] != '.' || b[from + 5] != '.') {
+            return NO_DISCOUNT;
+        }
+        int day = digits((char) b[from], (char) b[from + 1]);
+        int month = digits((char) b[from + 3], (char) b[from + 4]);
+        int year = digits((char) b[from + 6], (char) b[from + 7]) * 100 + digits((char) b[from + 8], (char) b[from + 9]);
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Обратное преобразование: номер дня в строку dd.MM.yyyy
+     */
+    static String format(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).format(FORMAT);
+    }
+
+    /**
+     * Двузначное число из двух цифр или -10000, если это не цифры
+     */
+    private static int digits(char high, char low) {
+        if (high < '0' || high > '9' || low < '0' || low > '9') {
+            return -10_000;
+        }
+        return (high - '0') * 10 + (low - '0');
+    }
+
+    private static long toEpochDay(int year, int month, int day) {
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return NO_DISCOUNT;
+        }
+        day = Math.min(day, lengthOfMonth(year, month)); // Как ResolverStyle.SMART
+        // Тот же расчёт, что и в LocalDate.toEpochDay()
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeap(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static boolean isLeap(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeap(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package Attestation_01;
+
+import java.util.Arrays;
+
+/**
+ * Расписание скидок продукта: непересекающиеся окна [начало, конец] (номера дней, включительно)
+ * с размером скидки в каждом. Окна хранятся в трёх параллельных массивах примитивов,
+ * отсортированных по началу, и скидка на любой день находится двоичным поиском
+ * за O(log n) без создания объектов.
+ * Окно без начала (OPEN_START) действует со сколь угодно ранней даты, как у DiscountProduct
+ * с одним сроком «до dd.MM.yyyy».
+ *
+ * Запись в строке продукта: Название = Цена : Скидка : Период [: Скидка : Период]...,
+ * где Период - "dd.MM.yyyy" (до даты включительно) или "dd.MM.yyyy-dd.MM.yyyy".
+ */
+final class DiscountSchedule {
+    static final long OPEN_START = Long.MIN_VALUE; // Окно без начала
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] amounts;
+
+    /**
+     * Расписание из окон [from, from + n) массивов (массивы копируются)
+     * @throws IllegalArgumentException Если окон нет, окна пересекаются или скидка отрицательна
+     */
+    DiscountSchedule(long[] starts, long[] ends, long[] amounts, int from, int n) {
+        this.starts = Arrays.copyOfRange(starts, from, from + n);
+        this.ends = Arrays.copyOfRange(ends, from, from + n);
+        this.amounts = Arrays.copyOfRange(amounts, from, from + n);
+        RecordValidator.require(sortAndCheck(this.starts, this.ends, this.amounts, n));
+    }
+
+    /**
+     * Сортировка первых n окон по началу (на месте) и проверка
+     * @return Код RecordValidator: OK, DISCOUNT_NEGATIVE, DISCOUNT_PERIOD или DISCOUNT_OVERLAP
+     */
+    static int sortAndCheck(long[] starts, long[] ends, long[] amounts, int n) {
+        if (n == 0) {
+            return RecordValidator.DISCOUNT_PERIOD;
+        }
+        // Сортировка вставками: окон у продукта немного
+        for (int i = 1; i < n; i++) {
+            long s = starts[i];
+            long e = ends[i];
+            long a = amounts[i];
+            int j = i - 1;
+            for (; j >= 0 && starts[j] > s; j--) {
+                starts[j + 1] = starts[j];
+                ends[j + 1] = ends[j];
+                amounts[j + 1] = amounts[j];
+            }
+            starts[j + 1] = s;
+            ends[j + 1] = e;
+            amounts[j + 1] = a;
+        }
+        for (int i = 0; i < n; i++) {
+            if (amounts[i] < 0) return RecordValidator.DISCOUNT_NEGATIVE;
+            if (ends[i] == DiscountDate.NO_DISCOUNT || starts[i] > ends[i]) return RecordValidator.DISCOUNT_PERIOD;
+            if (i > 0 && starts[i] <= ends[i - 1]) return RecordValidator.DISCOUNT_OVERLAP;
+        }
+        return RecordValidator.OK;
+    }
+
+    /**
+     * Номер окна, которое содержит день, среди окон [from, from + n) отсортированных массивов, или -1.
+     * Общий поиск для расписания и для окон ProductCatalog.
+     */
+    static int find(long[] starts, long[] ends, int from, int n, long epochDay) {
+        int lo = from;
+        int hi = from + n - 1;
+        int found = -1; // Последнее окно, которое начинается не позже дня
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= epochDay) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found >= 0 && epochDay <= ends[found] ? found : -1;
+    }
+
+    /**
+     * @return Скидка на день в копейках, 0 - если день не попадает ни в одно окно
+     */
+    long discount(long epochDay) {
+        int w = find(starts, ends, 0, starts.length, epochDay);
+        return w < 0 ? 0 : amounts[w];
+    }
+
+    int size() {
+        return starts.length;
+    }
+
+    long start(int i) {
+        return starts[i];
+    }
+
+    long end(int i) {
+        return ends[i];
+    }
+
+    long amount(int i) {
+        return amounts[i];
+    }
+
+    boolean sameAs(long[] starts, long[] ends, long[] amounts, int from, int n) {
+        return n == this.starts.length
+                && Arrays.equals(this.starts, 0, n, starts, from, from + n)
+                && Arrays.equals(this.ends, 0, n, ends, from, from + n)
+                && Arrays.equals(this.amounts, 0, n, amounts, from, from + n);
+    }
+
+    /**
+     * Окна в виде "Скидка : Период : Скидка : Период", как в строке продукта
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < starts.length; i++) {
+            if (i > 0) sb.append(" : ");
+            Money.appendTo(sb, amounts[i]).append(" : ");
+            if (starts[i] != OPEN_START) {
+                sb.append(DiscountDate.format(starts[i])).append('-');
+            }
+            sb.append(DiscountDate.format(ends[i]));
+        }
+        return sb.toString();
+    }
+}
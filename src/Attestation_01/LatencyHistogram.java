@@ -0,0 +1,92 @@
+package Attestation_01;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма задержек в наносекундах с корзинами по степеням двойки.
+ * Корзина b (b > 0) содержит значения из [2^(b-1), 2^b), корзина 0 - нули.
+ * Запись - один numberOfLeadingZeros и инкремент LongAdder: без выделения памяти
+ * и без общей точки конкуренции между потоками. Процентили точны с точностью до корзины (x2).
+ */
+final class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder total = new LongAdder(); // Сумма значений для среднего
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0; // nanoTime монотонен, но на всякий случай
+        }
+        buckets[BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    long mean() {
+        long count = count();
+        return count == 0 ? 0 : total.sum() / count;
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    /**
+     * Оценка процентиля сверху: верхняя граница корзины, в которую попадает доля q значений
+     * @param q Доля от 0 до 1
+     */
+    long percentile(double q) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] = buckets[b].sum();
+            count += counts[b];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return Math.min(b == 0 ? 0 : (1L << b) - 1, max());
+            }
+        }
+        return max();
+    }
+
+    void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        total.reset();
+        max.reset();
+    }
+
+    /**
+     * Строка сводки: "n=.. mean=.. p50=.. p99=.. p999=.. max=.. нс"
+     */
+    StringBuilder appendTo(StringBuilder sb) {
+        return sb.append("n=").append(count()).append(" mean=").append(mean())
+                .append(" p50=").append(percentile(0.5)).append(" p99=").append(percentile(0.99))
+                .append(" p999=").append(percentile(0.999)).append(" max=").append(max()).append(" нс");
+    }
+}
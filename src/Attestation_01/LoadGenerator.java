@@ -0,0 +1,272 @@
+package Attestation_01;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+/**
+ * Детерминированный генератор входа для App: покупатели «Имя = Сумма», обычные и скидочные
+ * продукты, покупки и строка END. Один и тот же seed и параметры дают байт в байт один и тот же файл.
+ * - --skew s: популярность продуктов и активность покупателей по закону Ципфа с показателем s
+ *   (0 - равномерно), номер 0 самый популярный;
+ * - --discounts f: доля скидочных продуктов, --expired f: доля из них с истёкшей скидкой
+ *   относительно --date (по умолчанию 01.01.2025, а не сегодня, чтобы файл не зависел от дня запуска),
+ *   у остальных скидка действует до года вперёд;
+ * - --invalid f: перед каждой верной строкой с вероятностью f вставляется неверная
+ *   (ошибки формата, суммы, названия, неизвестные имена), так что число верных записей не меняется.
+ * Запуск: java Attestation_01.LoadGenerator [параметры] [файл] (без файла - стандартный вывод)
+ */
+final class LoadGenerator {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final String USAGE = "Использование: LoadGenerator [--customers N] [--products N] [--purchases N]"
+            + " [--skew s] [--discounts доля] [--expired доля] [--invalid доля] [--seed N] [--date dd.MM.yyyy] [файл]";
+    private static final byte[] CUSTOMER = "Клиент ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PRODUCT = "Товар ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] UNKNOWN = "Незнакомец ".getBytes(StandardCharsets.UTF_8);
+    private static final long MAX_BALANCE = Money.ofMajor(100_000);
+    private static final long MAX_PRICE = Money.ofMajor(5_000);
+
+    int customers = 100_000;
+    int products = 1_000;
+    long purchases = 1_000_000;
+    double skew = 1.0;
+    double discounts = 0.3;
+    double expired = 0.5;
+    double invalid = 0.001;
+    long seed = 42;
+    LocalDate date = LocalDate.of(2025, 1, 1);
+
+    private SplittableRandom random;
+    private Out out;
+
+    public static void main(String[] args) throws IOException {
+        LoadGenerator generator = new LoadGenerator();
+        String file;
+        try {
+            file = generator.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        try (OutputStream stream = file == null ? System.out : new FileOutputStream(file)) {
+            generator.write(stream);
+        }
+    }
+
+    /**
+     * Разбор параметров
+     * @return Файл вывода или null
+     */
+    private String parse(String[] args) {
+        int i = 0;
+        try {
+            for (; i + 1 < args.length && args[i].startsWith("--"); i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--customers": customers = Integer.parseInt(value); break;
+                    case "--products": products = Integer.parseInt(value); break;
+                    case "--purchases": purchases = Long.parseLong(value); break;
+                    case "--skew": skew = Double.parseDouble(value); break;
+                    case "--discounts": discounts = Double.parseDouble(value); break;
+                    case "--expired": expired = Double.parseDouble(value); break;
+                    case "--invalid": invalid = Double.parseDouble(value); break;
+                    case "--seed": seed = Long.parseLong(value); break;
+                    case "--date": date = LocalDate.parse(value, DATE_FORMAT); break;
+                    default: throw new IllegalArgumentException(USAGE);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(USAGE, e);
+        }
+        if (i < args.length - 1 || (i < args.length && args[i].startsWith("--"))
+                || customers < 1 || products < 1 || purchases < 0 || skew < 0) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        return i < args.length ? args[i] : null;
+    }
+
+    /**
+     * Запись всех трёх разделов
+     */
+    void write(OutputStream stream) throws IOException {
+        random = new SplittableRandom(seed);
+        out = new Out(stream);
+        writeCustomers();
+        out.newLine();
+        writeProducts();
+        out.newLine();
+        writePurchases();
+        out.ascii("END").newLine();
+        out.flush();
+    }
+
+    private void writeCustomers() throws IOException {
+        for (int id = 0; id < customers; id++) {
+            if (random.nextDouble() < invalid) {
+                switch (random.nextInt(4)) {
+                    case 0: out.bytes(CUSTOMER).number(id).newLine(); break; // Нет "="
+                    case 1: out.bytes(CUSTOMER).number(id).ascii(" = -").money(random.nextLong(1, MAX_BALANCE)).newLine(); break;
+                    case 2: out.ascii("Ab = ").money(random.nextLong(MAX_BALANCE)).newLine(); break; // Короткое имя
+                    default: out.bytes(CUSTOMER).number(id).ascii(" = 12,5").newLine(); break; // Неверная сумма
+                }
+            }
+            out.bytes(CUSTOMER).number(id).ascii(" = ").money(random.nextLong(MAX_BALANCE + 1)).newLine();
+        }
+    }
+
+    private void writeProducts() throws IOException {
+        long today = date.toEpochDay();
+        for (int id = 0; id < products; id++) {
+            if (random.nextDouble() < invalid) {
+                switch (random.nextInt(4)) {
+                    case 0: out.number(1000 + id).ascii(" = 10").newLine(); break; // Только цифры
+                    case 1: out.bytes(PRODUCT).number(id).ascii(" = 0").newLine(); break; // Цена не положительная
+                    case 2: out.bytes(PRODUCT).number(id).ascii(" = 10 : 5").newLine(); break; // Неполная скидка
+                    default: out.ascii("Tv = 5").newLine(); break; // Короткое название
+                }
+            }
+            long price = random.nextLong(1, MAX_PRICE + 1);
+            out.bytes(PRODUCT).number(id).ascii(" = ").money(price);
+            if (random.nextDouble() < discounts) {
+                long until = random.nextDouble() < expired
+                        ? today - random.nextInt(1, 366)
+                        : today + random.nextInt(0, 366);
+                out.ascii(" : ").money(random.nextLong(price + 1)).ascii(" : ").ascii(LocalDate.ofEpochDay(until).format(DATE_FORMAT));
+            }
+            out.newLine();
+        }
+    }
+
+    private void writePurchases() throws IOException {
+        Zipf who = new Zipf(customers, skew);
+        Zipf what = new Zipf(products, skew);
+        for (long n = 0; n < purchases; n++) {
+            int customer = who.next(random);
+            int product = what.next(random);
+            if (random.nextDouble() < invalid) {
+                switch (random.nextInt(3)) {
+                    case 0: out.bytes(CUSTOMER).number(customer).ascii(" ").bytes(PRODUCT).number(product).newLine(); break;
+                    case 1: out.bytes(UNKNOWN).number(customer).ascii(" - ").bytes(PRODUCT).number(product).newLine(); break;
+                    default: out.bytes(CUSTOMER).number(customer).ascii(" - ").bytes(PRODUCT).number(products + product).newLine(); break;
+                }
+            }
+            out.bytes(CUSTOMER).number(customer).ascii(" - ").bytes(PRODUCT).number(product).newLine();
+        }
+    }
+
+    /**
+     * Выбор номера 0..n-1 с вероятностью, пропорциональной 1 / (номер + 1)^s:
+     * накопленные веса и двоичный поиск
+     */
+    private static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double s) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += s == 0 ? 1 : Math.pow(i + 1, -s);
+                cumulative[i] = sum;
+            }
+        }
+
+        int next(SplittableRandom random) {
+            double x = random.nextDouble() * cumulative[cumulative.length - 1];
+            int lo = 0;
+            int hi = cumulative.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cumulative[mid] > x) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * Буферизованный вывод байтов с записью чисел и сумм без промежуточных строк
+     */
+    private static final class Out {
+        private final OutputStream stream;
+        private final byte[] buf = new byte[1 << 16];
+        private int pos;
+
+        Out(OutputStream stream) {
+            this.stream = stream;
+        }
+
+        Out bytes(byte[] b) throws IOException {
+            if (pos + b.length > buf.length) {
+                drain();
+            }
+            System.arraycopy(b, 0, buf, pos, b.length);
+            pos += b.length;
+            return this;
+        }
+
+        Out ascii(String s) throws IOException {
+            if (pos + s.length() > buf.length) {
+                drain();
+            }
+            for (int i = 0; i < s.length(); i++) {
+                buf[pos++] = (byte) s.charAt(i);
+            }
+            return this;
+        }
+
+        Out number(long value) throws IOException {
+            if (pos + 20 > buf.length) {
+                drain();
+            }
+            if (value < 0) {
+                buf[pos++] = '-';
+                value = -value;
+            }
+            int start = pos;
+            do {
+                buf[pos++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            for (int i = start, j = pos - 1; i < j; i++, j--) {
+                byte t = buf[i];
+                buf[i] = buf[j];
+                buf[j] = t;
+            }
+            return this;
+        }
+
+        /**
+         * Сумма в копейках в виде "рубли.копейки"
+         */
+        Out money(long minor) throws IOException {
+            number(minor / Money.UNIT);
+            long cents = minor % Money.UNIT;
+            return ascii(cents < 10 ? ".0" : ".").number(cents);
+        }
+
+        Out newLine() throws IOException {
+            if (pos == buf.length) {
+                drain();
+            }
+            buf[pos++] = '\n';
+            return this;
+        }
+
+        private void drain() throws IOException {
+            stream.write(buf, 0, pos);
+            pos = 0;
+        }
+
+        void flush() throws IOException {
+            drain();
+            stream.flush();
+        }
+    }
+}
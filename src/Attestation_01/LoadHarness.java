@@ -0,0 +1,245 @@
+package Attestation_01;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Сквозной замер пакетного режима App на готовом входе (например, из LoadGenerator).
+ * Каждый прогон выполняет весь конвейер BatchIngest: разбор трёх разделов, покупки и отчёт.
+ * Отчёт не печатается, а хешируется SHA-256 (или пишется в --out), и хеш сверяется с эталоном
+ * и с отчётом последовательного прогона (один поток, один процесс), который выполняется перед замером,
+ * если заданы --threads или --shards больше 1: ускорение, которое меняет результат, сразу видно,
+ * даже при первом прогоне без эталона. С --analytics последовательная сверка не выполняется:
+ * порядок покупателей с отказами зависит от потоков.
+ * Выводится: строки и покупки в секунду, пиковая занятость кучи (сумма пиков пулов кучи,
+ * оценка сверху) и паузы сборщика мусора (число, суммарное и наибольшее время).
+ * Запуск: java Attestation_01.LoadHarness [--runs N] [--reference файл] [--update-reference]
+ *         [--out файл] [параметры App --batch] вход
+ * Эталон - файл с хешем отчёта; если его нет или задан --update-reference, он записывается.
+ * Для воспроизводимого эталона нужен --date: от даты зависит, какие скидки действуют.
+ * Эталон для входа LoadGenerator по умолчанию - benchmarks/baseline/load-report.sha256 (см. benchmarks/Readme).
+ * С --shards N замеряется режим нескольких процессов (ShardedIngest); пик кучи и паузы
+ * сборщика тогда относятся только к координатору.
+ */
+final class LoadHarness {
+    private static final String USAGE = "Использование: LoadHarness [--runs N] [--reference файл] [--update-reference]"
+            + " [--out файл] [параметры App --batch] вход";
+
+    /**
+     * Паузы сборщика мусора по уведомлениям JMX (длительность каждой сборки)
+     */
+    private static final class GcPauses implements NotificationListener {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalMillis = new AtomicLong();
+        final AtomicLong maxMillis = new AtomicLong();
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            long duration = info.getGcInfo().getDuration();
+            count.incrementAndGet();
+            totalMillis.addAndGet(duration);
+            maxMillis.accumulateAndGet(duration, Math::max);
+        }
+
+        void reset() {
+            count.set(0);
+            totalMillis.set(0);
+            maxMillis.set(0);
+        }
+    }
+
+    /**
+     * Поток с подсчётом строк (байтов '\n') по мере чтения
+     */
+    private static final class LineCountingStream extends FilterInputStream {
+        long lines;
+
+        LineCountingStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == '\n') {
+                lines++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            for (int i = off; i < off + n; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+            return n;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, NoSuchAlgorithmException {
+        int runs = 1;
+        Path reference = null;
+        boolean updateReference = false;
+        Path outFile = null;
+        List<String> batchArgs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--runs": runs = Integer.parseInt(args[++i]); break;
+                    case "--reference": reference = Paths.get(args[++i]); break;
+                    case "--update-reference": updateReference = true; break;
+                    case "--out": outFile = Paths.get(args[++i]); break;
+                    default: batchArgs.add(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.out.println(USAGE);
+            return;
+        }
+        if (runs < 1 || batchArgs.isEmpty() || batchArgs.get(batchArgs.size() - 1).startsWith("--")) {
+            System.out.println(USAGE);
+            return;
+        }
+        Path input = Paths.get(batchArgs.remove(batchArgs.size() - 1));
+        BatchIngest.Options options;
+        try {
+            options = BatchIngest.Options.parse(batchArgs.toArray(new String[0]));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        if (options.files.length > 0 || options.store != null) {
+            System.out.println("Файлы разделов и --store в замере не поддерживаются: вход - один файл");
+            return;
+        }
+
+        GcPauses pauses = new GcPauses();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) {
+                ((NotificationEmitter) gc).addNotificationListener(pauses, null, null);
+            }
+        }
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                heapPools.add(pool);
+            }
+        }
+
+        String sequential = null;
+        if ((options.threads > 1 || options.shards > 1) && options.analyticsTop == 0) {
+            BatchIngest.Options single = BatchIngest.Options.parse(batchArgs.toArray(new String[0]));
+            single.threads = 1;
+            single.shards = 1;
+            sequential = sequentialDigest(single, input);
+            System.out.println("Последовательный прогон: отчёт " + sequential.substring(0, 16));
+        }
+        String expected = reference != null && !updateReference && Files.exists(reference)
+                ? Files.readString(reference, StandardCharsets.UTF_8).trim() : null;
+        System.out.println("Вход: " + input + " (" + Files.size(input) / (1 << 20) + " МБ), параметры: " + batchArgs);
+        String digest = null;
+        boolean ok = true;
+        for (int run = 1; run <= runs; run++) {
+            System.gc(); // Прогоны начинаются с одинаково чистой кучи
+            pauses.reset();
+            for (MemoryPoolMXBean pool : heapPools) {
+                pool.resetPeakUsage();
+            }
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            BatchIngest ingest = options.shards > 1 ? null : new BatchIngest(options);
+            ShardedIngest sharded = options.shards > 1 ? new ShardedIngest(options) : null;
+            long start;
+            long lines;
+            try (LineCountingStream in = new LineCountingStream(new BufferedInputStream(new FileInputStream(input.toFile()), 1 << 16));
+                 OutputStream sink = outFile == null ? OutputStream.nullOutputStream() : Files.newOutputStream(outFile)) {
+                BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new DigestOutputStream(sink, sha), StandardCharsets.UTF_8), 1 << 16);
+                start = System.nanoTime();
+                if (sharded != null) {
+                    sharded.run(in, out);
+                } else {
+                    ingest.run(in, out);
+                }
+                lines = in.lines;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long submitted = sharded != null ? sharded.submitted() : ingest.submitted();
+            long peak = 0;
+            for (MemoryPoolMXBean pool : heapPools) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+            digest = hex(sha.digest());
+            boolean same = expected == null || expected.equals(digest);
+            boolean sameAsSequential = sequential == null || sequential.equals(digest);
+            ok &= same && sameAsSequential;
+            System.out.printf("Прогон %d: %.2f с, строк %d (%.0f/с), покупок %d (%.0f/с), пик кучи %d МБ,"
+                            + " GC: %d сборок, %d мс всего, наибольшая %d мс, отчёт %s%s%n",
+                    run, seconds, lines, lines / seconds, submitted, submitted / seconds,
+                    peak / (1 << 20), pauses.count.get(), pauses.totalMillis.get(), pauses.maxMillis.get(),
+                    digest.substring(0, 16), (expected == null ? "" : same ? " - совпадает с эталоном" : " - НЕ совпадает с эталоном")
+                            + (sameAsSequential ? "" : " - НЕ совпадает с последовательным прогоном"));
+        }
+        if (reference != null && expected == null && ok) { // Отчёт, расходящийся с последовательным, в эталон не попадает
+            Files.writeString(reference, digest + System.lineSeparator(), StandardCharsets.UTF_8);
+            System.out.println("Эталон записан: " + reference);
+        }
+        if (!ok) {
+            System.out.println("Отчёт отличается от " + (sequential == null ? "эталона " + reference : "эталона или последовательного прогона"));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Хеш отчёта одного прогона без замеров (для сверки с последовательным выполнением)
+     */
+    private static String sequentialDigest(BatchIngest.Options options, Path input)
+            throws IOException, InterruptedException, NoSuchAlgorithmException {
+        MessageDigest sha = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = new BufferedInputStream(new FileInputStream(input.toFile()), 1 << 16)) {
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                    new DigestOutputStream(OutputStream.nullOutputStream(), sha), StandardCharsets.UTF_8), 1 << 16);
+            new BatchIngest(options).run(in, out);
+        }
+        return hex(sha.digest());
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
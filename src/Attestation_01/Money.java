@@ -0,0 +1,183 @@
+package Attestation_01;
+
+/**
+ * Денежные суммы в виде long в минимальных единицах (копейках).
+ * Операции выполняются над примитивами без упаковки и без ошибок округления double;
+ * переполнение приводит к ArithmeticException, а не к тихой потере денег.
+ */
+final class Money {
+    static final int SCALE = 2; // Знаков после запятой
+    static final long UNIT = 100; // Копеек в рубле
+    static final long INVALID = Long.MIN_VALUE; // Результат tryParse для неверной суммы (сам разбор его не даёт)
+
+    private Money() {
+    }
+
+    /**
+     * Сумма в копейках из целого числа рублей
+     */
+    static long ofMajor(long major) {
+        return Math.multiplyExact(major, UNIT);
+    }
+
+    static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    static int compare(long a, long b) {
+        return Long.compare(a, b);
+    }
+
+    /**
+     * Разбор суммы вида [+-]123[.45] (допускается и запятая)
+     * @param text Строка с суммой
+     * @return Сумма в копейках
+     * @throws NumberFormatException При неверном формате или слишком большом значении
+     */
+    static long parse(CharSequence text) {
+        if (text == null) {
+            throw new NumberFormatException("Сумма не указана");
+        }
+        long value = tryParse(text, 0, text.length());
+        if (value == INVALID) {
+            throw new NumberFormatException("Неверный формат суммы: " + text.toString().trim());
+        }
+        return value;
+    }
+
+    /**
+     * Разбор суммы прямо из байтов строки без создания String
+     * @return Сумма в копейках
+     * @throws NumberFormatException При неверном формате или слишком большом значении
+     */
+    static long parse(byte[] b, int from, int to) {
+        long value = tryParse(b, from, to);
+        if (value == INVALID) {
+            throw new NumberFormatException("Неверный формат суммы: " + Bytes.decode(b, from, to).trim());
+        }
+        return value;
+    }
+
+    /**
+     * Разбор суммы из диапазона символов без исключений (для массовой проверки).
+     * Больше двух знаков после запятой округляются до копейки вверх от половины (100.555 - 100.56),
+     * как прежде при выводе double. Экспонента (1e3), суффикс типа (100d) и прочие формы
+     * Double.parseDouble не принимаются.
+     * @return Сумма в копейках или {@link #INVALID}
+     */
+    static long tryParse(CharSequence text, int from, int to) {
+        while (from < to && text.charAt(from) <= ' ') from++;
+        while (to > from && text.charAt(to - 1) <= ' ') to--;
+        long value = 0;
+        int digits = 0;
+        int scale = -1; // Цифр после запятой, -1 пока запятой не было
+        boolean negative = false;
+        boolean roundUp = false;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                if (scale >= SCALE) {
+                    if (scale == SCALE) roundUp = digit >= 5; // Лишние знаки: округление вверх от половины копейки
+                } else {
+                    if (value > (Long.MAX_VALUE - digit) / 10) return INVALID;
+                    value = value * 10 + digit;
+                }
+                digits++;
+                if (scale >= 0) scale++;
+            } else if ((c == '.' || c == ',') && scale < 0) {
+                scale = 0;
+            } else if ((c == '-' || c == '+') && i == from) {
+                negative = c == '-';
+            } else {
+                return INVALID;
+            }
+        }
+        return scaled(value, digits, scale, negative, roundUp);
+    }
+
+    /**
+     * То же, что {@link #tryParse(CharSequence, int, int)}, по байтам
+     * @return Сумма в копейках или {@link #INVALID}
+     */
+    static long tryParse(byte[] b, int from, int to) {
+        from = Bytes.trimStart(b, from, to);
+        to = Bytes.trimEnd(b, from, to);
+        long value = 0;
+        int digits = 0;
+        int scale = -1; // Цифр после запятой, -1 пока запятой не было
+        boolean negative = false;
+        boolean roundUp = false;
+        for (int i = from; i < to; i++) {
+            byte c = b[i];
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                if (scale >= SCALE) {
+                    if (scale == SCALE) roundUp = digit >= 5; // Лишние знаки: округление вверх от половины копейки
+                } else {
+                    if (value > (Long.MAX_VALUE - digit) / 10) return INVALID;
+                    value = value * 10 + digit;
+                }
+                digits++;
+                if (scale >= 0) scale++;
+            } else if ((c == '.' || c == ',') && scale < 0) {
+                scale = 0;
+            } else if ((c == '-' || c == '+') && i == from) {
+                negative = c == '-';
+            } else {
+                return INVALID;
+            }
+        }
+        return scaled(value, digits, scale, negative, roundUp);
+    }
+
+    /**
+     * Приведение разобранных цифр к копейкам
+     */
+    private static long scaled(long value, int digits, int scale, boolean negative, boolean roundUp) {
+        if (digits == 0) {
+            return INVALID;
+        }
+        for (int s = Math.max(scale, 0); s < SCALE; s++) {
+            if (value > Long.MAX_VALUE / 10) return INVALID;
+            value *= 10;
+        }
+        if (roundUp) {
+            if (value == Long.MAX_VALUE) return INVALID;
+            value++;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Строковое представление суммы, например 1234.50
+     */
+    static String format(long minor) {
+        return appendTo(new StringBuilder(24), minor).toString();
+    }
+
+    /**
+     * Запись суммы в StringBuilder без промежуточных строк
+     */
+    static StringBuilder appendTo(StringBuilder sb, long minor) {
+        if (minor < 0) {
+            sb.append('-');
+            if (minor == Long.MIN_VALUE) {
+                // -Long.MIN_VALUE не представимо, обрабатываем через беззнаковое деление
+                long fraction = Long.remainderUnsigned(minor, UNIT);
+                sb.append(Long.divideUnsigned(minor, UNIT)).append('.');
+                if (fraction < 10) sb.append('0');
+                return sb.append(fraction);
+            }
+            minor = -minor;
+        }
+        long fraction = minor % UNIT;
+        sb.append(minor / UNIT).append('.');
+        if (fraction < 10) sb.append('0');
+        return sb.append(fraction);
+    }
+}
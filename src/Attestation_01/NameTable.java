@@ -0,0 +1,186 @@
+package Attestation_01;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Таблица имён с плотными номерами 0, 1, 2, ...
+ * Имена хранятся подряд в одном массиве байтов UTF-8, а поиск идёт открытой адресацией
+ * прямо по диапазону входных байтов (или символов), без создания подстрок и объектов-ключей.
+ * Для каждого номера хранятся только смещение, длина и хеш, поэтому на имя приходится
+ * несколько int вместо String, узла HashMap и копии ключа.
+ */
+final class NameTable {
+    private byte[] arena = new byte[1 << 12]; // Байты всех имён подряд
+    private int arenaSize;
+    private int[] offsets = new int[16]; // Начало имени в arena по номеру
+    private int[] lengths = new int[16]; // Длина имени в байтах по номеру
+    private int[] hashes = new int[16]; // Хеш имени по номеру
+    private int size;
+    private int[] slots = new int[32]; // Номер + 1, 0 - свободно
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Поиск имени по диапазону байтов UTF-8
+     * @return Номер имени или -1
+     */
+    int find(byte[] b, int from, int to) {
+        int hash = hash(b, from, to);
+        int mask = slots.length - 1;
+        for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (hashes[id] == hash && Arrays.equals(arena, offsets[id], offsets[id] + lengths[id], b, from, to)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Поиск имени по диапазону символов строки (например, строки из Scanner)
+     * @return Номер имени или -1
+     */
+    int find(CharSequence s, int from, int to) {
+        int hash = hash(s, from, to);
+        int mask = slots.length - 1;
+        for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (hashes[id] == hash && equalsUtf8(id, s, from, to)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Номер имени; новое имя получает следующий свободный номер
+     */
+    int intern(byte[] b, int from, int to) {
+        int id = find(b, from, to);
+        return id >= 0 ? id : insert(b, from, to, hash(b, from, to));
+    }
+
+    int intern(String name) {
+        byte[] b = name.getBytes(StandardCharsets.UTF_8);
+        return intern(b, 0, b.length);
+    }
+
+    String name(int id) {
+        return new String(arena, offsets[id], lengths[id], StandardCharsets.UTF_8);
+    }
+
+    private int insert(byte[] b, int from, int to, int hash) {
+        int length = to - from;
+        if (arenaSize + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + length));
+        }
+        System.arraycopy(b, from, arena, arenaSize, length);
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        offsets[id] = arenaSize;
+        lengths[id] = length;
+        hashes[id] = hash;
+        arenaSize += length;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            place(id);
+        }
+        return id;
+    }
+
+    private void place(int id) {
+        int mask = slots.length - 1;
+        int i = hashes[id] & mask;
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = id + 1;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int id = 0; id < size; id++) {
+            place(id);
+        }
+    }
+
+    /**
+     * Хеш FNV-1a по байтам с перемешиванием старших битов
+     */
+    static int hash(byte[] b, int from, int to) {
+        int h = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            h = (h ^ (b[i] & 0xFF)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Тот же хеш, что и hash(byte[]), но по символам: символы кодируются в UTF-8 на лету
+     */
+    static int hash(CharSequence s, int from, int to) {
+        int h = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            int cp = s.charAt(i);
+            if (Character.isHighSurrogate((char) cp) && i + 1 < to && Character.isLowSurrogate(s.charAt(i + 1))) {
+                cp = Character.toCodePoint((char) cp, s.charAt(++i));
+            }
+            int n = utf8Length(cp);
+            for (int k = 0; k < n; k++) {
+                h = (h ^ utf8Byte(cp, n, k)) * 0x01000193;
+            }
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private boolean equalsUtf8(int id, CharSequence s, int from, int to) {
+        int p = offsets[id];
+        int end = p + lengths[id];
+        for (int i = from; i < to; i++) {
+            int cp = s.charAt(i);
+            if (Character.isHighSurrogate((char) cp) && i + 1 < to && Character.isLowSurrogate(s.charAt(i + 1))) {
+                cp = Character.toCodePoint((char) cp, s.charAt(++i));
+            }
+            int n = utf8Length(cp);
+            if (p + n > end) {
+                return false;
+            }
+            for (int k = 0; k < n; k++) {
+                if ((arena[p++] & 0xFF) != utf8Byte(cp, n, k)) {
+                    return false;
+                }
+            }
+        }
+        return p == end;
+    }
+
+    private static int utf8Length(int cp) {
+        if (cp < 0x80) return 1;
+        if (cp < 0x800) return 2;
+        if (Character.isSurrogate((char) cp) && cp < 0x10000) return 1; // Одиночный суррогат кодируется как '?'
+        if (cp < 0x10000) return 3;
+        return 4;
+    }
+
+    /**
+     * k-й байт кодировки UTF-8 символа cp длиной n байт
+     */
+    private static int utf8Byte(int cp, int n, int k) {
+        if (n == 1) {
+            return cp < 0x80 ? cp : '?';
+        }
+        if (k == 0) {
+            int lead = n == 2 ? 0xC0 : n == 3 ? 0xE0 : 0xF0;
+            return lead | cp >> (6 * (n - 1));
+        }
+        return 0x80 | (cp >> (6 * (n - 1 - k)) & 0x3F);
+    }
+}
@@ -0,0 +1,106 @@
+package Attestation_01;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Источник текущей даты для расчёта цен.
+ * Дата возвращается как номер дня от эпохи (LocalDate.toEpochDay()), чтобы сравнение
+ * со сроком скидки было сравнением двух long без разбора строк и создания объектов.
+ * По умолчанию используется системное время; для пакетной обработки можно установить
+ * фиксированную «бизнес-дату», и тогда весь пакет оценивается на один и тот же день.
+ */
+abstract class PriceClock {
+    private static volatile PriceClock current = system();
+
+    /**
+     * @return Текущий день как LocalDate.toEpochDay()
+     */
+    abstract long today();
+
+    /**
+     * @return Часы, по которым сейчас считаются цены
+     */
+    static PriceClock current() {
+        return current;
+    }
+
+    /**
+     * Установка часов для расчёта цен
+     * @param clock Новые часы
+     */
+    static void install(PriceClock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Часы не могут быть пустыми");
+        }
+        current = clock;
+    }
+
+    /**
+     * Системные часы в часовом поясе по умолчанию
+     */
+    static PriceClock system() {
+        return new SystemClock(ZoneId.systemDefault());
+    }
+
+    /**
+     * Часы, всегда возвращающие заданную дату
+     * @param date Бизнес-дата
+     */
+    static PriceClock fixed(LocalDate date) {
+        long day = date.toEpochDay();
+        return new PriceClock() {
+            @Override
+            long today() {
+                return day;
+            }
+        };
+    }
+
+    /**
+     * Системные часы, которые пересчитывают дату только при переходе через полночь
+     */
+    private static final class SystemClock extends PriceClock {
+        private final ZoneId zone;
+        private volatile DayWindow window = new DayWindow(0, 0, 0); // Пустое окно, заполняется при первом вызове
+
+        SystemClock(ZoneId zone) {
+            this.zone = zone;
+        }
+
+        @Override
+        long today() {
+            long now = System.currentTimeMillis();
+            DayWindow w = window;
+            if (now < w.startMillis || now >= w.endMillis) {
+                w = DayWindow.containing(now, zone);
+                window = w;
+            }
+            return w.day;
+        }
+    }
+
+    /**
+     * Сутки в миллисекундах [startMillis, endMillis) и их номер
+     */
+    private static final class DayWindow {
+        final long day;
+        final long startMillis;
+        final long endMillis;
+
+        DayWindow(long day, long startMillis, long endMillis) {
+            this.day = day;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        static DayWindow containing(long millis, ZoneId zone) {
+            LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+            ZonedDateTime start = date.atStartOfDay(zone);
+            ZonedDateTime end = date.plusDays(1).atStartOfDay(zone);
+            return new DayWindow(date.toEpochDay(), start.toInstant().toEpochMilli(), end.toInstant().toEpochMilli());
+        }
+    }
+}
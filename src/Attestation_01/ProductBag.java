@@ -0,0 +1,197 @@
+package Attestation_01;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Пакет покупок покупателя.
+ * Хеш пакета поддерживается нарастающим итогом при каждой покупке и совпадает
+ * со значением List.hashCode() для того же списка продуктов, поэтому Person.hashCode()
+ * не обходит пакет. Хеш продукта фиксируется в момент покупки.
+ * Последовательность покупок представлена серией «отрезков»: продукт и сколько раз подряд он куплен.
+ */
+abstract class ProductBag {
+    protected int hash = 1; // Как у пустого List
+    protected int size;
+
+    /**
+     * Добавление купленного продукта в конец пакета
+     */
+    final void add(Product product) {
+        hash = 31 * hash + product.hashCode();
+        size++;
+        append(product);
+    }
+
+    /**
+     * Добавление count одинаковых покупок подряд одним отрезком (при восстановлении из снимка).
+     * count шагов hash = 31 * hash + h дают hash * 31^count + h * (1 + 31 + ... + 31^(count-1));
+     * степень и сумма считаются удвоением по битам count, то есть за O(log count).
+     */
+    final void addRun(Product product, int count) {
+        int pow = 1; // 31^n
+        int sum = 0; // 1 + 31 + ... + 31^(n-1)
+        for (int bit = Integer.highestOneBit(count); bit != 0; bit >>>= 1) {
+            sum *= 1 + pow; // n -> 2n
+            pow *= pow;
+            if ((count & bit) != 0) { // 2n -> 2n + 1
+                sum = 31 * sum + 1;
+                pow *= 31;
+            }
+        }
+        hash = hash * pow + product.hashCode() * sum;
+        size += count;
+        appendRun(product, count);
+    }
+
+    protected abstract void append(Product product);
+
+    protected abstract void appendRun(Product product, int count);
+
+    /**
+     * @return Количество отрезков одинаковых продуктов подряд
+     */
+    abstract int runCount();
+
+    abstract Product runProduct(int run);
+
+    abstract int runLength(int run);
+
+    /**
+     * @return Независимая копия пакета (для сравнения вне блокировки владельца)
+     */
+    abstract ProductBag copy();
+
+    final int size() {
+        return size;
+    }
+
+    final boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return Немодифицируемая копия списка продуктов в порядке покупки
+     */
+    List<Product> toList() {
+        List<Product> list = new ArrayList<>(size);
+        for (int r = 0; r < runCount(); r++) {
+            list.addAll(Collections.nCopies(runLength(r), runProduct(r)));
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Запись названий продуктов через запятую без промежуточного списка строк
+     */
+    void appendNamesTo(Appendable out) throws IOException {
+        boolean first = true;
+        for (int r = 0; r < runCount(); r++) {
+            String name = runProduct(r).getName();
+            for (int k = runLength(r); k > 0; k--) {
+                if (!first) {
+                    out.append(", ");
+                }
+                out.append(name);
+                first = false;
+            }
+        }
+    }
+
+    /**
+     * Поэлементное сравнение последовательностей продуктов, не зависящее от реализации пакета
+     */
+    final boolean sameContents(ProductBag other) {
+        if (size != other.size || hash != other.hash) {
+            return false;
+        }
+        int r1 = 0;
+        int r2 = 0;
+        int left1 = 0;
+        int left2 = 0;
+        Product p1 = null;
+        Product p2 = null;
+        for (int remaining = size; remaining > 0; ) {
+            if (left1 == 0) {
+                p1 = runProduct(r1);
+                left1 = runLength(r1++);
+            }
+            if (left2 == 0) {
+                p2 = other.runProduct(r2);
+                left2 = other.runLength(r2++);
+            }
+            if (p1 != p2 && !p1.equals(p2)) {
+                return false;
+            }
+            int step = Math.min(left1, left2);
+            left1 -= step;
+            left2 -= step;
+            remaining -= step;
+        }
+        return true;
+    }
+
+    /**
+     * @return Хеш последовательности продуктов (равен List.hashCode())
+     */
+    final int contentHash() {
+        return hash;
+    }
+
+    /**
+     * Пакет на основе ArrayList: одна ссылка на каждую покупку
+     */
+    static final class ListBag extends ProductBag {
+        private final ArrayList<Product> items;
+
+        ListBag() {
+            items = new ArrayList<>();
+        }
+
+        private ListBag(ListBag source) {
+            items = new ArrayList<>(source.items);
+            hash = source.hash;
+            size = source.size;
+        }
+
+        @Override
+        protected void append(Product product) {
+            items.add(product);
+        }
+
+        @Override
+        protected void appendRun(Product product, int count) {
+            items.addAll(Collections.nCopies(count, product));
+        }
+
+        @Override
+        int runCount() {
+            return items.size();
+        }
+
+        @Override
+        Product runProduct(int run) {
+            return items.get(run);
+        }
+
+        @Override
+        int runLength(int run) {
+            return 1;
+        }
+
+        @Override
+        ProductBag copy() {
+            return new ListBag(this);
+        }
+
+        /**
+         * @return Немодифицируемое представление самого списка, без копирования
+         */
+        @Override
+        List<Product> toList() {
+            return Collections.unmodifiableList(items);
+        }
+    }
+}
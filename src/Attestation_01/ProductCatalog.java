@@ -0,0 +1,240 @@
+package Attestation_01;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Каталог продуктов с плотными номерами.
+ * Цены и скидки хранятся в параллельных массивах примитивов (по одному элементу на номер),
+ * поэтому каталог на миллионы позиций не создаёт объект на каждую из них, а цена продукта
+ * определяется одним поиском по имени и чтением нескольких элементов массивов.
+ * Объект Product создаётся только для продуктов, которые реально покупают (см. {@link #product}).
+ * Расписания скидок (DiscountSchedule) всех продуктов лежат подряд в общих массивах окон,
+ * а у продукта хранятся начало его окон и их количество; окна продукта отсортированы,
+ * и цена на любой день находится двоичным поиском по ним.
+ */
+final class ProductCatalog {
+    private final NameTable names = new NameTable();
+    private long[] prices = new long[16]; // Базовая цена в копейках
+    private long[] discounts = new long[16]; // Скидка в копейках, 0 у обычных продуктов
+    private long[] discountedPrices = new long[16]; // Цена со скидкой, max(цена - скидка, 0)
+    private long[] validUntilDays = new long[16]; // Последний день скидки или NO_DISCOUNT
+    private String[] validUntilTexts = new String[16]; // Исходный срок скидки, null у обычных продуктов
+    private Product[] materialized = new Product[16]; // Созданные объекты продуктов
+    private int[] windowFrom = new int[16]; // Первое окно расписания продукта в общих массивах
+    private int[] windowCounts = new int[16]; // Окон в расписании, 0 - скидка задана discounts/validUntilDays
+    // Окна расписаний всех продуктов подряд; окна заменённого продукта остаются неиспользованными
+    private long[] windowStarts = new long[16];
+    private long[] windowEnds = new long[16];
+    private long[] windowAmounts = new long[16];
+    private int windowTotal;
+
+    int size() {
+        return names.size();
+    }
+
+    /**
+     * Добавление или замена продукта (как HashMap.put по названию).
+     * Из продукта копируются только поля; сам объект каталог не хранит.
+     * @return Номер продукта
+     */
+    int put(Product product) {
+        return store(names.intern(product.getName()), product);
+    }
+
+    /**
+     * То же, что {@link #put(Product)}, но название уже есть во входном буфере в UTF-8
+     * @return Номер продукта
+     */
+    int put(byte[] b, int nameFrom, int nameTo, Product product) {
+        return store(names.intern(b, nameFrom, nameTo), product);
+    }
+
+    /**
+     * Добавление уже проверенного продукта прямо в массивы, без объекта Product (см. RecordValidator)
+     * @param validUntil Срок скидки dd.MM.yyyy или null у обычного продукта
+     * @return Номер продукта
+     */
+    int put(byte[] b, int nameFrom, int nameTo, long price, long discount, String validUntil) {
+        int id = names.intern(b, nameFrom, nameTo);
+        store(id, price, discount, validUntil, validUntil == null ? DiscountDate.NO_DISCOUNT : DiscountDate.parse(validUntil));
+        return id;
+    }
+
+    /**
+     * Добавление продукта с расписанием скидок из первых n окон массивов
+     * (окна уже отсортированы и проверены, см. DiscountSchedule.sortAndCheck)
+     * @return Номер продукта
+     */
+    int put(byte[] b, int nameFrom, int nameTo, long price, long[] starts, long[] ends, long[] amounts, int n) {
+        int id = names.intern(b, nameFrom, nameTo);
+        store(id, price, starts, ends, amounts, n);
+        return id;
+    }
+
+    private int store(int id, Product product) {
+        DiscountSchedule schedule = product instanceof DiscountProduct ? ((DiscountProduct) product).getSchedule() : null;
+        if (schedule != null) {
+            long[] starts = new long[schedule.size()];
+            long[] ends = new long[schedule.size()];
+            long[] amounts = new long[schedule.size()];
+            for (int i = 0; i < schedule.size(); i++) {
+                starts[i] = schedule.start(i);
+                ends[i] = schedule.end(i);
+                amounts[i] = schedule.amount(i);
+            }
+            store(id, product.getBasePrice(), starts, ends, amounts, schedule.size());
+        } else if (product instanceof DiscountProduct) {
+            DiscountProduct discounted = (DiscountProduct) product;
+            store(id, product.getBasePrice(), discounted.getDiscount(), discounted.getValidUntil(), discounted.getValidUntilDay());
+        } else {
+            store(id, product.getBasePrice(), 0, null, DiscountDate.NO_DISCOUNT);
+        }
+        return id;
+    }
+
+    private void store(int id, long price, long discount, String validUntil, long validUntilDay) {
+        ensureCapacity(id + 1);
+        prices[id] = price;
+        discounts[id] = discount;
+        validUntilDays[id] = validUntilDay;
+        validUntilTexts[id] = validUntil;
+        discountedPrices[id] = Math.max(Money.subtract(price, discount), 0);
+        windowCounts[id] = 0;
+        materialized[id] = null; // Старый объект остаётся в пакетах, новый создастся при покупке
+    }
+
+    private void store(int id, long price, long[] starts, long[] ends, long[] amounts, int n) {
+        store(id, price, amounts[0], null, DiscountDate.NO_DISCOUNT);
+        if (windowTotal + n > windowStarts.length) {
+            int capacity = Math.max(windowTotal + n, windowStarts.length * 2);
+            windowStarts = Arrays.copyOf(windowStarts, capacity);
+            windowEnds = Arrays.copyOf(windowEnds, capacity);
+            windowAmounts = Arrays.copyOf(windowAmounts, capacity);
+        }
+        System.arraycopy(starts, 0, windowStarts, windowTotal, n);
+        System.arraycopy(ends, 0, windowEnds, windowTotal, n);
+        System.arraycopy(amounts, 0, windowAmounts, windowTotal, n);
+        windowFrom[id] = windowTotal;
+        windowCounts[id] = n;
+        windowTotal += n;
+    }
+
+    /**
+     * Поиск продукта по названию в диапазоне байтов UTF-8
+     * @return Номер продукта или -1
+     */
+    int find(byte[] b, int from, int to) {
+        return names.find(b, from, to);
+    }
+
+    /**
+     * Поиск продукта по названию в диапазоне символов строки
+     * @return Номер продукта или -1
+     */
+    int find(CharSequence s, int from, int to) {
+        return names.find(s, from, to);
+    }
+
+    /**
+     * Цена продукта на заданный день (LocalDate.toEpochDay())
+     */
+    long price(int id, long epochDay) {
+        if (PurchaseMetrics.ENABLED) {
+            long start = System.nanoTime();
+            long price = priceOn(id, epochDay);
+            PurchaseMetrics.priced(start);
+            return price;
+        }
+        return priceOn(id, epochDay);
+    }
+
+    private long priceOn(int id, long epochDay) {
+        int n = windowCounts[id];
+        if (n == 0) {
+            return epochDay <= validUntilDays[id] ? discountedPrices[id] : prices[id];
+        }
+        int w = DiscountSchedule.find(windowStarts, windowEnds, windowFrom[id], n, epochDay);
+        return w < 0 ? prices[id] : Math.max(Money.subtract(prices[id], windowAmounts[w]), 0);
+    }
+
+    String name(int id) {
+        return names.name(id);
+    }
+
+    /**
+     * @return Базовая цена продукта без скидки
+     */
+    long basePrice(int id) {
+        return prices[id];
+    }
+
+    long discount(int id) {
+        return discounts[id];
+    }
+
+    /**
+     * @return Расписание скидок продукта или null, если скидка задана одним сроком (или её нет)
+     */
+    DiscountSchedule schedule(int id) {
+        int n = windowCounts[id];
+        return n == 0 ? null : new DiscountSchedule(windowStarts, windowEnds, windowAmounts, windowFrom[id], n);
+    }
+
+    /**
+     * @return Срок скидки dd.MM.yyyy или null у обычного продукта и продукта с расписанием
+     */
+    String validUntil(int id) {
+        return validUntilTexts[id];
+    }
+
+    /**
+     * Совпадает ли продукт по полям с позицией каталога (например, куплен до замены продукта)
+     */
+    boolean sameAs(int id, Product product) {
+        if (product.getBasePrice() != prices[id]) {
+            return false;
+        }
+        if (!(product instanceof DiscountProduct)) {
+            return validUntilTexts[id] == null && windowCounts[id] == 0;
+        }
+        DiscountProduct discounted = (DiscountProduct) product;
+        DiscountSchedule schedule = discounted.getSchedule();
+        if (schedule != null || windowCounts[id] != 0) {
+            return schedule != null && schedule.sameAs(windowStarts, windowEnds, windowAmounts, windowFrom[id], windowCounts[id]);
+        }
+        return discounted.getDiscount() == discounts[id] && Objects.equals(discounted.getValidUntil(), validUntilTexts[id]);
+    }
+
+    /**
+     * Объект продукта по номеру; создаётся при первом обращении.
+     * Не потокобезопасен: вызывается из потока, который разбирает ввод.
+     */
+    Product product(int id) {
+        Product product = materialized[id];
+        if (product == null) {
+            product = windowCounts[id] != 0
+                    ? new DiscountProduct(names.name(id), prices[id], schedule(id))
+                    : validUntilTexts[id] == null
+                    ? new Product(names.name(id), prices[id])
+                    : new DiscountProduct(names.name(id), prices[id], discounts[id], validUntilTexts[id]);
+            materialized[id] = product;
+        }
+        return product;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= prices.length) {
+            return;
+        }
+        int n = Math.max(capacity, prices.length * 2);
+        prices = Arrays.copyOf(prices, n);
+        discounts = Arrays.copyOf(discounts, n);
+        discountedPrices = Arrays.copyOf(discountedPrices, n);
+        validUntilDays = Arrays.copyOf(validUntilDays, n);
+        validUntilTexts = Arrays.copyOf(validUntilTexts, n);
+        materialized = Arrays.copyOf(materialized, n);
+        windowFrom = Arrays.copyOf(windowFrom, n);
+        windowCounts = Arrays.copyOf(windowCounts, n);
+    }
+}
@@ -0,0 +1,256 @@
+package Attestation_01;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Аналитика покупок, которая обновляется прямо при выполнении каждой покупки
+ * (см. PurchaseEngine и Person.buy в интерактивном режиме).
+ * Счётчики продуктов и покупателей - атомарные массивы по плотным номерам каталога и индекса
+ * покупателей, поэтому рабочие потоки обновляют их без общих блокировок.
+ * Обратный индекс «продукт -> покупатели» защищён полосатыми блокировками по номеру продукта,
+ * а топ продуктов по выручке - небольшой упорядоченный массив под своей блокировкой.
+ * Запросы не обходят пакеты: счётчики читаются за O(1), списки - за O(k) по их длине.
+ */
+final class PurchaseAnalytics {
+    private static final int STRIPES = 64; // Блокировок обратного индекса (степень двойки)
+
+    private final AtomicLongArray purchases; // Выполненных покупок продукта
+    private final AtomicLongArray revenue; // Выручка продукта в копейках
+    private final AtomicLongArray productRejections; // Отказов «не может позволить себе» по продукту
+    private final AtomicIntegerArray customerRejections; // Отказов по покупателю
+    private final LongAdder totalRejections = new LongAdder();
+
+    private final BuyerSet[] buyers; // Различные покупатели продукта в порядке первой покупки
+    private final Object[] stripes = new Object[STRIPES];
+
+    private final int[] leaders; // Топ продуктов по выручке, лучший первым
+    private int leaderCount;
+    private volatile long leaderFloor; // Выручка последнего лидера, когда топ заполнен (иначе 0)
+
+    private int[] rejectedCustomers = new int[16]; // Покупатели с отказами в порядке первого отказа
+    private int rejectedCount;
+
+    /**
+     * Множество номеров покупателей: массив в порядке добавления и открытая адресация для проверки
+     */
+    private static final class BuyerSet {
+        int[] ids = new int[4];
+        int size;
+        int[] slots = new int[8]; // Номер покупателя + 1, 0 - пусто
+
+        void add(int id) {
+            int mask = slots.length - 1;
+            int i = mix(id) & mask;
+            while (slots[i] != 0) {
+                if (slots[i] == id + 1) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            slots[i] = id + 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+            if (size * 2 > slots.length) {
+                slots = new int[slots.length * 2];
+                mask = slots.length - 1;
+                for (int k = 0; k < size; k++) {
+                    int j = mix(ids[k]) & mask;
+                    while (slots[j] != 0) {
+                        j = (j + 1) & mask;
+                    }
+                    slots[j] = ids[k] + 1;
+                }
+            }
+        }
+
+        private static int mix(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * @param products Количество продуктов в каталоге
+     * @param customers Количество покупателей
+     * @param top Размер топа продуктов по выручке
+     */
+    PurchaseAnalytics(int products, int customers, int top) {
+        purchases = new AtomicLongArray(products);
+        revenue = new AtomicLongArray(products);
+        productRejections = new AtomicLongArray(products);
+        customerRejections = new AtomicIntegerArray(customers);
+        buyers = new BuyerSet[products];
+        leaders = new int[top];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Учёт выполненной покупки
+     */
+    void purchased(int customerId, int productId, long price) {
+        purchases.incrementAndGet(productId);
+        long total = revenue.addAndGet(productId, price);
+        synchronized (stripes[productId & (STRIPES - 1)]) {
+            BuyerSet set = buyers[productId];
+            if (set == null) {
+                set = new BuyerSet();
+                buyers[productId] = set;
+            }
+            set.add(customerId);
+        }
+        if (price > 0) {
+            promote(productId, total);
+        }
+    }
+
+    /**
+     * Учёт отказа: покупателю не хватило денег
+     */
+    void rejected(int customerId, int productId) {
+        productRejections.incrementAndGet(productId);
+        totalRejections.increment();
+        if (customerRejections.getAndIncrement(customerId) == 0) {
+            synchronized (this) { // Только при первом отказе покупателя
+                if (rejectedCount == rejectedCustomers.length) {
+                    rejectedCustomers = Arrays.copyOf(rejectedCustomers, rejectedCount * 2);
+                }
+                rejectedCustomers[rejectedCount++] = customerId;
+            }
+        }
+    }
+
+    // Запросы
+
+    long purchases(int productId) {
+        return purchases.get(productId);
+    }
+
+    long revenue(int productId) {
+        return revenue.get(productId);
+    }
+
+    long rejections(int productId) {
+        return productRejections.get(productId);
+    }
+
+    int customerRejections(int customerId) {
+        return customerRejections.get(customerId);
+    }
+
+    long totalRejections() {
+        return totalRejections.sum();
+    }
+
+    /**
+     * Кто купил продукт: номера различных покупателей в порядке первой покупки
+     */
+    int[] buyers(int productId) {
+        synchronized (stripes[productId & (STRIPES - 1)]) {
+            BuyerSet set = buyers[productId];
+            return set == null ? new int[0] : Arrays.copyOf(set.ids, set.size);
+        }
+    }
+
+    /**
+     * Покупатели, которым хотя бы раз не хватило денег, в порядке первого отказа
+     */
+    synchronized int[] rejectedCustomers() {
+        return Arrays.copyOf(rejectedCustomers, rejectedCount);
+    }
+
+    /**
+     * Первые n продуктов по выручке (при равенстве - меньший номер выше), n не больше размера топа.
+     * Топ поддерживается при каждой покупке, поэтому запрос - копирование O(n).
+     * @return Номера продуктов по убыванию выручки, только с ненулевой выручкой
+     */
+    int[] topByRevenue(int n) {
+        synchronized (leaders) {
+            sortLeaders(); // Выручка лидеров могла вырасти после последней перестановки
+            return Arrays.copyOf(leaders, Math.max(Math.min(n, leaderCount), 0));
+        }
+    }
+
+    /**
+     * Вывод аналитики: топ продуктов по выручке, число покупателей каждого из них и отказы
+     * @param top Сколько продуктов показать
+     */
+    void appendTo(Appendable out, int top, ProductCatalog catalog, CustomerIndex people) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\nАналитика:\nТоп продуктов по выручке:\n");
+        for (int id : topByRevenue(top)) {
+            sb.append(catalog.name(id)).append(" - ");
+            Money.appendTo(sb, revenue(id)).append(" (покупок: ").append(purchases(id))
+                    .append(", покупателей: ").append(buyers(id).length).append(")\n");
+        }
+        sb.append("Отказов: ").append(totalRejections()).append('\n');
+        int[] rejected = rejectedCustomers();
+        sb.append("Покупатели с отказами:");
+        for (int i = 0; i < rejected.length; i++) {
+            sb.append(i == 0 ? " " : ", ").append(people.person(rejected[i]).getName())
+                    .append(" (").append(customerRejections(rejected[i])).append(')');
+        }
+        out.append(sb).append('\n');
+    }
+
+    /**
+     * Продукт, выручка которого выросла до revenue, занимает своё место в топе.
+     * Выручка только растёт, поэтому продукт, который не лучше последнего лидера, пропускается без блокировки:
+     * порог - выручка последнего лидера, она тоже только растёт.
+     */
+    private void promote(int productId, long revenue) {
+        if (revenue < leaderFloor || leaders.length == 0) {
+            return;
+        }
+        synchronized (leaders) {
+            int at = -1;
+            for (int i = 0; i < leaderCount; i++) {
+                if (leaders[i] == productId) {
+                    at = i;
+                    break;
+                }
+            }
+            if (at < 0) {
+                if (leaderCount < leaders.length) {
+                    leaders[leaderCount++] = productId;
+                } else if (better(productId, leaders[leaderCount - 1])) {
+                    leaders[leaderCount - 1] = productId;
+                } else {
+                    return;
+                }
+            }
+            sortLeaders();
+            if (leaderCount == leaders.length) {
+                leaderFloor = this.revenue.get(leaders[leaderCount - 1]);
+            }
+        }
+    }
+
+    /**
+     * Сортировка вставками по текущей выручке (вызывать под блокировкой leaders)
+     */
+    private void sortLeaders() {
+        for (int i = 1; i < leaderCount; i++) {
+            int id = leaders[i];
+            int j = i;
+            while (j > 0 && better(id, leaders[j - 1])) {
+                leaders[j] = leaders[j - 1];
+                j--;
+            }
+            leaders[j] = id;
+        }
+    }
+
+    private boolean better(int a, int b) {
+        long ra = revenue.get(a);
+        long rb = revenue.get(b);
+        return ra != rb ? ra > rb : a < b;
+    }
+}
@@ -0,0 +1,273 @@
+package Attestation_01;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Параллельное применение покупок.
+ * Покупатели распределяются по рабочим потокам по хешу имени, поэтому все покупки
+ * одного покупателя выполняет один поток в порядке поступления, а разные покупатели
+ * обрабатываются параллельно. Покупки передаются пакетами через ограниченные очереди:
+ * если рабочие потоки не успевают, отправитель ждёт (обратное давление).
+ * Цены берутся из массивов ProductCatalog на дату PriceClock, считанную один раз на пакет,
+ * либо на дату самой покупки, если она передана (воспроизведение истории покупок).
+ * Если задан журнал, каждая выполненная покупка записывается в него с уплаченной ценой,
+ * а если задана аналитика, в ней учитываются и покупки, и отказы.
+ * Если задан получатель результатов, о каждой покупке и каждом запросе остатка
+ * сообщается ему с меткой, переданной в submit (так отвечает PurchaseService).
+ */
+final class PurchaseEngine {
+    private static final int BATCH_SIZE = 4096; // Покупок в одном пакете
+    private static final int BATCHES_PER_WORKER = 4; // Пакетов в обращении на один поток
+
+    private static final PurchaseBatch END_OF_INPUT = new PurchaseBatch();
+    static final long TODAY = Long.MIN_VALUE; // Покупка без своей даты: цена на дату PriceClock
+    static final int BALANCE = -1; // Номер продукта для запроса остатка покупателя
+    static final long REJECTED = -1; // Цена в результате отклонённой покупки
+
+    /**
+     * Получатель результатов, вызывается из рабочих потоков
+     */
+    interface Listener {
+        /**
+         * @param tag Метка из submit
+         * @param price Уплаченная цена, REJECTED при нехватке денег, 0 для запроса остатка
+         * @param balance Остаток покупателя после покупки
+         */
+        void completed(long tag, long price, long balance);
+    }
+
+    private final ProductCatalog catalog;
+    private final PurchaseJournal journal; // null - без журнала
+    private final PurchaseAnalytics analytics; // null - без аналитики
+    private final Listener listener; // null - результаты никому не сообщаются
+    private volatile IOException journalFailure; // Первая ошибка записи журнала
+    private volatile Throwable failure; // Первое исключение при выполнении покупки (получатель, аналитика, каталог)
+    private final Worker[] workers;
+    private final PurchaseBatch[] filling; // Заполняемый пакет для каждого потока
+
+    /**
+     * Пакет покупок для одного рабочего потока
+     */
+    private static final class PurchaseBatch {
+        final Person[] buyers = new Person[BATCH_SIZE];
+        final Product[] items = new Product[BATCH_SIZE];
+        final int[] productIds = new int[BATCH_SIZE]; // Номера продуктов в каталоге
+        final int[] customerIds = new int[BATCH_SIZE]; // Номера покупателей (для журнала)
+        final long[] days = new long[BATCH_SIZE]; // Дни покупок или TODAY
+        final long[] tags = new long[BATCH_SIZE]; // Метки для получателя результатов
+        int size;
+    }
+
+    /**
+     * Рабочий поток со своей очередью готовых пакетов и пулом свободных
+     */
+    private final class Worker extends Thread {
+        final BlockingQueue<PurchaseBatch> ready = new ArrayBlockingQueue<>(BATCHES_PER_WORKER + 1);
+        final BlockingQueue<PurchaseBatch> free = new ArrayBlockingQueue<>(BATCHES_PER_WORKER);
+
+        Worker(int index) {
+            super("purchase-worker-" + index);
+            setDaemon(true);
+            for (int i = 0; i < BATCHES_PER_WORKER; i++) {
+                free.add(new PurchaseBatch());
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    PurchaseBatch batch = ready.take();
+                    if (batch == END_OF_INPUT) break;
+                    long today = PriceClock.current().today();
+                    for (int i = 0; i < batch.size; i++) {
+                        if (journalFailure == null && failure == null) {
+                            try {
+                                apply(batch, i, today);
+                            } catch (Throwable e) {
+                                if (failure == null) {
+                                    failure = e;
+                                }
+                            }
+                        } // После ошибки пакеты только возвращаются, чтобы отправитель не ждал вечно
+                        batch.buyers[i] = null;
+                        batch.items[i] = null;
+                    }
+                    batch.size = 0;
+                    free.put(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void apply(PurchaseBatch batch, int i, long today) {
+        if (batch.productIds[i] == BALANCE) {
+            if (listener != null) {
+                listener.completed(batch.tags[i], 0, batch.buyers[i].getMoney());
+            }
+            return;
+        }
+        long day = batch.days[i];
+        long price = catalog.price(batch.productIds[i], day == TODAY ? today : day);
+        if (!batch.buyers[i].tryBuy(batch.items[i], price)) {
+            if (analytics != null) {
+                analytics.rejected(batch.customerIds[i], batch.productIds[i]);
+            }
+            if (listener != null) {
+                listener.completed(batch.tags[i], REJECTED, batch.buyers[i].getMoney());
+            }
+            return;
+        }
+        if (listener != null) {
+            listener.completed(batch.tags[i], price, batch.buyers[i].getMoney());
+        }
+        if (analytics != null) {
+            analytics.purchased(batch.customerIds[i], batch.productIds[i], price);
+        }
+        if (journal != null) {
+            try {
+                journal.append(batch.customerIds[i], batch.productIds[i], price);
+            } catch (IOException e) {
+                journalFailure = e;
+            }
+        }
+    }
+
+    /**
+     * @param threads Количество рабочих потоков (не меньше 1)
+     * @param catalog Каталог, из которого берутся продукты и цены
+     */
+    PurchaseEngine(int threads, ProductCatalog catalog) {
+        this(threads, catalog, null, null);
+    }
+
+    /**
+     * Журнал и аналитика требуют номеров покупателей, см. {@link #submit(int, Person, int)}
+     * @param journal Журнал выполненных покупок или null
+     * @param analytics Аналитика покупок или null
+     */
+    PurchaseEngine(int threads, ProductCatalog catalog, PurchaseJournal journal, PurchaseAnalytics analytics) {
+        this(threads, catalog, journal, analytics, null);
+    }
+
+    /**
+     * @param listener Получатель результатов покупок и запросов остатка
+     */
+    PurchaseEngine(int threads, ProductCatalog catalog, Listener listener) {
+        this(threads, catalog, null, null, listener);
+    }
+
+    private PurchaseEngine(int threads, ProductCatalog catalog, PurchaseJournal journal, PurchaseAnalytics analytics,
+                           Listener listener) {
+        this.journal = journal;
+        this.analytics = analytics;
+        this.listener = listener;
+        if (threads < 1) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным");
+        }
+        this.catalog = catalog;
+        workers = new Worker[threads];
+        filling = new PurchaseBatch[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Номер рабочего потока, который обслуживает покупателя
+     */
+    int shardOf(Person person) {
+        return Math.floorMod(person.getName().hashCode(), workers.length);
+    }
+
+    /**
+     * Передача покупки на выполнение.
+     * Вызывается из одного потока; порядок покупок каждого покупателя сохраняется.
+     * @param customerId Номер покупателя в CustomerIndex (для журнала и аналитики)
+     */
+    void submit(int customerId, Person person, int productId) throws InterruptedException {
+        submit(customerId, person, productId, TODAY);
+    }
+
+    /**
+     * То же, что {@link #submit(int, Person, int)}, с ценой на день покупки
+     * @param day Номер дня покупки или TODAY
+     */
+    void submit(int customerId, Person person, int productId, long day) throws InterruptedException {
+        submit(customerId, person, productId, day, 0);
+    }
+
+    /**
+     * То же, что {@link #submit(int, Person, int, long)}, с меткой для получателя результатов
+     * @param productId Номер продукта или BALANCE для запроса остатка (нужен получатель результатов)
+     */
+    void submit(int customerId, Person person, int productId, long day, long tag) throws InterruptedException {
+        int shard = shardOf(person);
+        PurchaseBatch batch = filling[shard];
+        if (batch == null) {
+            batch = workers[shard].free.take();
+            filling[shard] = batch;
+        }
+        batch.buyers[batch.size] = person;
+        batch.items[batch.size] = productId == BALANCE ? null : catalog.product(productId); // Объект создаётся здесь, в одном потоке
+        batch.productIds[batch.size] = productId;
+        batch.customerIds[batch.size] = customerId;
+        batch.days[batch.size] = day;
+        batch.tags[batch.size] = tag;
+        if (++batch.size == BATCH_SIZE) {
+            workers[shard].ready.put(batch);
+            filling[shard] = null;
+        }
+    }
+
+    /**
+     * Отправка неполных пакетов рабочим потокам без завершения (для долгой работы, когда
+     * ответа ждут раньше, чем наберётся полный пакет)
+     */
+    void flush() throws InterruptedException {
+        for (int i = 0; i < workers.length; i++) {
+            if (filling[i] != null) {
+                workers[i].ready.put(filling[i]);
+                filling[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Проверка без ожидания для долгой работы: после ошибки покупки больше не выполняются
+     * и получатель результатов о них не узнает
+     * @return Первое исключение рабочего потока или ошибка записи журнала, null - ошибок не было
+     */
+    Throwable failure() {
+        return failure != null ? failure : journalFailure;
+    }
+
+    /**
+     * Отправка неполных пакетов и ожидание завершения всех рабочих потоков
+     * @throws IOException Если не удалось записать журнал (покупки после ошибки не выполнены)
+     * @throws RuntimeException Исключение рабочего потока при выполнении покупки (покупки после него не выполнены)
+     */
+    void finish() throws InterruptedException, IOException {
+        flush();
+        for (Worker worker : workers) {
+            worker.ready.put(END_OF_INPUT);
+        }
+        for (Worker worker : workers) {
+            worker.join();
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure; // apply не бросает проверяемых исключений
+        }
+        if (journalFailure != null) {
+            throw journalFailure;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package Attestation_01;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал выполненных покупок: файл только для дозаписи с записями фиксированной длины.
+ * Запись: номер покупателя, номер продукта в каталоге, уплаченная цена и CRC32C этих 16 байтов.
+ * Рабочие потоки складывают записи в общий буфер, а на диск он уходит одной записью
+ * с одним force() на всю группу (групповая фиксация), когда буфер заполнен или при commit().
+ * В заголовке хранится поколение снимка, к которому относится журнал: журнал другого
+ * поколения уже учтён в снимке и при восстановлении пропускается.
+ */
+final class PurchaseJournal implements AutoCloseable {
+    static final String FILE = "journal.bin";
+    private static final int MAGIC = 0x504A524E; // "PJRN"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16; // MAGIC, VERSION, поколение
+    static final int RECORD = 20; // Покупатель, продукт, цена, CRC32C
+    private static final int GROUP = 1 << 16; // Размер буфера групповой фиксации
+
+    /**
+     * Получатель записей журнала при восстановлении
+     */
+    interface Replay {
+        /**
+         * @throws IOException Если запись не соответствует восстановленному состоянию
+         */
+        void purchase(int customerId, int productId, long price) throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(GROUP - GROUP % RECORD);
+    private final byte[] record = new byte[RECORD];
+    private final ByteBuffer recordView = ByteBuffer.wrap(record);
+    private final CRC32C crc = new CRC32C();
+    private long records; // Записей в журнале (на диске и в буфере)
+
+    private PurchaseJournal(FileChannel channel, long records) {
+        this.channel = channel;
+        this.records = records;
+    }
+
+    /**
+     * Открытие журнала для дозаписи после восстановления.
+     * Журнал другого поколения или без заголовка начинается заново; записи начиная с первой
+     * повреждённой (оборванный при сбое хвост) в replay не передаются и отрезаются.
+     * @param replay Получатель уцелевших записей текущего поколения
+     */
+    static PurchaseJournal open(Path dir, long generation, Replay replay) throws IOException {
+        Path path = dir.resolve(FILE);
+        if (!Files.exists(path)) {
+            return create(dir, generation);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // Дочитывание заголовка, если канал вернул его по частям
+            }
+            header.flip();
+            if (header.remaining() < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION
+                    || header.getLong() != generation) {
+                channel.close();
+                return create(dir, generation);
+            }
+            long valid = HEADER;
+            CRC32C check = new CRC32C();
+            // Записи читаются отображёнными участками, чтобы не ограничиваться 2 ГБ
+            for (long start = HEADER; start + RECORD <= size; ) {
+                long length = Math.min(size - start, (Integer.MAX_VALUE / RECORD) * (long) RECORD);
+                length -= length % RECORD;
+                MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                boolean torn = false;
+                while (in.remaining() >= RECORD) {
+                    int customerId = in.getInt();
+                    int productId = in.getInt();
+                    long price = in.getLong();
+                    check.reset();
+                    check.update(in.duplicate().position(in.position() - 16).limit(in.position()));
+                    if ((int) check.getValue() != in.getInt()) {
+                        torn = true;
+                        break;
+                    }
+                    replay.purchase(customerId, productId, price);
+                    valid += RECORD;
+                }
+                if (torn) {
+                    break;
+                }
+                start += length;
+            }
+            if (valid < size) {
+                channel.truncate(valid); // Отрезание оборванного хвоста
+                channel.force(true);
+            }
+            channel.position(valid);
+            return new PurchaseJournal(channel, (valid - HEADER) / RECORD);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Новый пустой журнал поколения generation (заменяет прежний атомарно)
+     */
+    static PurchaseJournal create(Path dir, long generation) throws IOException {
+        Path tmp = dir.resolve(FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).putLong(generation);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+        Path path = dir.resolve(FILE);
+        PurchaseStore.replace(tmp, path);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        channel.position(HEADER);
+        return new PurchaseJournal(channel, 0);
+    }
+
+    /**
+     * Запись выполненной покупки. Вызывается из рабочих потоков; на диск попадает при фиксации группы.
+     */
+    synchronized void append(int customerId, int productId, long price) throws IOException {
+        recordView.clear();
+        recordView.putInt(customerId).putInt(productId).putLong(price);
+        crc.reset();
+        crc.update(record, 0, RECORD - 4);
+        recordView.putInt((int) crc.getValue());
+        if (buffer.remaining() < RECORD) {
+            flush(); // Группа заполнена: одна запись и один force() на все её покупки
+        }
+        buffer.put(record);
+        records++;
+    }
+
+    /**
+     * Фиксация: всё записанное попадает на диск (write и force)
+     */
+    synchronized void commit() throws IOException {
+        flush();
+    }
+
+    /**
+     * @return Записей в журнале текущего поколения
+     */
+    synchronized long records() {
+        return records;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
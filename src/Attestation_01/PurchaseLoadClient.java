@@ -0,0 +1,187 @@
+package Attestation_01;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный клиент для PurchaseService (App --serve) на том же компьютере.
+ * Открывает --connections соединений, в каждом держит до --window запросов без ответа
+ * и отправляет их подряд. Имена - как у LoadGenerator ("Клиент N", "Товар N"), покупатель и продукт
+ * выбираются равномерно, доля --balance запросов - запросы остатка, доля --invalid - строки с ошибкой
+ * (неизвестное имя или строка без "-"), на которые сервис отвечает сам, не передавая их в движок.
+ * Задержка каждого запроса меряется от записи в сокет до получения ответа.
+ * Выводятся запросы в секунду, число ответов каждого вида и процентили задержки
+ * (с точностью до степени двойки, см. LatencyHistogram).
+ * Запуск: java Attestation_01.PurchaseLoadClient [--port N] [--connections N] [--requests N]
+ *         [--window N] [--customers N] [--products N] [--balance доля] [--invalid доля] [--seed N]
+ */
+final class PurchaseLoadClient {
+    private static final String USAGE = "Использование: PurchaseLoadClient [--port N] [--connections N] [--requests N]"
+            + " [--window N] [--customers N] [--products N] [--balance доля] [--invalid доля] [--seed N]";
+    private static final byte[] CUSTOMER = "Клиент ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PRODUCT = " - Товар ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] QUERY = "? Клиент ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] UNKNOWN = "Нет Такого - Хлеб".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] GARBAGE = "garbage".getBytes(StandardCharsets.UTF_8);
+    private static final String[] KINDS = {"OK", "ОТКАЗ", "БАЛАНС", "ОШИБКА"};
+
+    int port = PurchaseService.DEFAULT_PORT;
+    int connections = 4;
+    long requests = 1_000_000;
+    int window = 64;
+    int customers = 100_000;
+    int products = 1_000;
+    double balance = 0.1;
+    double invalid = 0;
+    long seed = 42;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder[] answers = {new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()};
+
+    public static void main(String[] args) throws InterruptedException {
+        PurchaseLoadClient client = new PurchaseLoadClient();
+        try {
+            if (args.length % 2 != 0) {
+                throw new IllegalArgumentException(USAGE);
+            }
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--port": client.port = Integer.parseInt(value); break;
+                    case "--connections": client.connections = Integer.parseInt(value); break;
+                    case "--requests": client.requests = Long.parseLong(value); break;
+                    case "--window": client.window = Integer.parseInt(value); break;
+                    case "--customers": client.customers = Integer.parseInt(value); break;
+                    case "--products": client.products = Integer.parseInt(value); break;
+                    case "--balance": client.balance = Double.parseDouble(value); break;
+                    case "--invalid": client.invalid = Double.parseDouble(value); break;
+                    case "--seed": client.seed = Long.parseLong(value); break;
+                    default: throw new IllegalArgumentException(USAGE);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.out.println(USAGE);
+            return;
+        }
+        if (client.connections < 1 || client.requests < 1 || client.window < 1 || client.customers < 1 || client.products < 1) {
+            System.out.println(USAGE);
+            return;
+        }
+        client.run();
+    }
+
+    void run() throws InterruptedException {
+        Thread[] threads = new Thread[connections];
+        SplittableRandom random = new SplittableRandom(seed);
+        IOException[] failures = new IOException[connections];
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            int index = i;
+            long count = requests / connections + (i < requests % connections ? 1 : 0);
+            SplittableRandom own = random.split();
+            threads[i] = new Thread(() -> {
+                try {
+                    drive(count, own);
+                } catch (IOException e) {
+                    failures[index] = e;
+                }
+            }, "load-client-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (IOException failure : failures) {
+            if (failure != null) {
+                System.out.println("Ошибка соединения: " + failure.getMessage());
+                return;
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Запросов %d за %.2f с: %.0f/с (соединений %d, окно %d)%nОтветы:",
+                latency.count(), seconds, latency.count() / seconds, connections, window));
+        for (int k = 0; k < KINDS.length; k++) {
+            sb.append(' ').append(KINDS[k]).append(' ').append(answers[k].sum());
+        }
+        sb.append("\nЗадержка: ");
+        latency.appendTo(sb);
+        System.out.println(sb);
+    }
+
+    /**
+     * Одно соединение: запросы окном, ответы по порядку
+     */
+    private void drive(long count, SplittableRandom random) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            ByteBuffer out = ByteBuffer.allocate(1 << 16);
+            ByteBuffer in = ByteBuffer.allocate(1 << 16);
+            long[] sentAt = new long[window];
+            long sent = 0;
+            long received = 0;
+            while (received < count) {
+                long now = System.nanoTime();
+                while (sent < count && sent - received < window && out.remaining() >= 64) {
+                    double roll = random.nextDouble();
+                    if (roll < invalid) {
+                        out.put(random.nextBoolean() ? UNKNOWN : GARBAGE);
+                    } else if (roll < invalid + balance) {
+                        out.put(QUERY);
+                        putNumber(out, random.nextInt(customers));
+                    } else {
+                        out.put(CUSTOMER);
+                        putNumber(out, random.nextInt(customers));
+                        out.put(PRODUCT);
+                        putNumber(out, random.nextInt(products));
+                    }
+                    out.put((byte) '\n');
+                    sentAt[(int) (sent++ % window)] = now;
+                }
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                out.clear();
+
+                if (channel.read(in) < 0) {
+                    throw new IOException("Сервис закрыл соединение");
+                }
+                now = System.nanoTime();
+                byte[] b = in.array();
+                int limit = in.position();
+                int from = 0;
+                for (int newLine; (newLine = Bytes.indexOf(b, from, limit, (byte) '\n')) >= 0; from = newLine + 1) {
+                    latency.record(now - sentAt[(int) (received++ % window)]);
+                    answers[kind(b, from)].increment();
+                }
+                System.arraycopy(b, from, b, 0, limit - from);
+                in.position(limit - from);
+            }
+        }
+    }
+
+    /**
+     * Вид ответа по первым байтам UTF-8: OK, ОТКАЗ (О - 0xD0 0x9E, Т - 0xD0 0xA2), БАЛАНС (Б - 0xD0 0x91) или ОШИБКА
+     */
+    private static int kind(byte[] b, int from) {
+        if (b[from] == 'O') return 0;
+        if (b[from + 1] == (byte) 0x9E && b[from + 3] == (byte) 0xA2) return 1;
+        if (b[from + 1] == (byte) 0x91) return 2;
+        return 3;
+    }
+
+    private static void putNumber(ByteBuffer out, int value) {
+        if (value >= 10) {
+            putNumber(out, value / 10);
+        }
+        out.put((byte) ('0' + value % 10));
+    }
+}
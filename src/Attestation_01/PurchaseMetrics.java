@@ -0,0 +1,196 @@
+package Attestation_01;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Встроенные метрики пути покупки: попытки и отказы, ошибки разбора ввода,
+ * гистограммы задержек расчёта цены и покупки.
+ * Включаются свойством -Dattestation.metrics=true. Флаг ENABLED - static final, поэтому
+ * при выключенных метриках JIT убирает проверки вида if (PurchaseMetrics.ENABLED) вместе
+ * с вызовами System.nanoTime(), и накладные расходы практически нулевые.
+ * При включении метрики регистрируются в JMX, а сводка печатается в System.err каждые
+ * -Dattestation.metrics.period секунд (по умолчанию 10, 0 - только при завершении).
+ */
+final class PurchaseMetrics implements PurchaseMetricsMXBean {
+    static final boolean ENABLED = Boolean.getBoolean("attestation.metrics");
+    static final String OBJECT_NAME = "Attestation_01:type=PurchaseMetrics";
+
+    private static final PurchaseMetrics INSTANCE = new PurchaseMetrics();
+
+    private final LongAdder purchases = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder parseErrors = new LongAdder();
+    private final LongAdder lookupMisses = new LongAdder(); // Покупатель или продукт не найдены
+    private final LatencyHistogram purchaseLatency = new LatencyHistogram();
+    private final LatencyHistogram pricingLatency = new LatencyHistogram();
+    private volatile long startNanos = System.nanoTime();
+
+    // Для скорости за интервал периодической сводки (пишется только потоком сводки)
+    private long lastPurchases;
+    private long lastNanos = startNanos;
+
+    static {
+        if (ENABLED) {
+            INSTANCE.start(Long.getLong("attestation.metrics.period", 10));
+        }
+    }
+
+    private PurchaseMetrics() {
+    }
+
+    static PurchaseMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Учёт попытки покупки (вызывать только под if (ENABLED))
+     * @param bought Куплен ли продукт
+     * @param startNanos System.nanoTime() перед покупкой
+     */
+    static void purchase(boolean bought, long startNanos) {
+        INSTANCE.purchaseLatency.record(System.nanoTime() - startNanos);
+        (bought ? INSTANCE.purchases : INSTANCE.rejections).increment();
+    }
+
+    /**
+     * Учёт расчёта цены (вызывать только под if (ENABLED))
+     * @param startNanos System.nanoTime() перед расчётом
+     */
+    static void priced(long startNanos) {
+        INSTANCE.pricingLatency.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Учёт отклонённой строки ввода по коду RecordValidator
+     */
+    static void inputError(int code) {
+        if (ENABLED) {
+            (code == RecordValidator.NOT_FOUND ? INSTANCE.lookupMisses : INSTANCE.parseErrors).increment();
+        }
+    }
+
+    private void start(long periodSeconds) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Метрики не зарегистрированы в JMX: " + e.getMessage());
+        }
+        if (periodSeconds > 0) {
+            ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "purchase-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.scheduleAtFixedRate(this::dump, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::dump, "purchase-metrics-final"));
+    }
+
+    private synchronized void dump() {
+        long now = System.nanoTime();
+        long bought = purchases.sum();
+        double rate = now == lastNanos ? 0 : (bought - lastPurchases) * 1e9 / (now - lastNanos);
+        lastPurchases = bought;
+        lastNanos = now;
+        System.err.println(summary(rate));
+    }
+
+    private String summary(double rate) {
+        StringBuilder sb = new StringBuilder("Метрики: покупок ").append(purchases.sum())
+                .append(" (").append(Math.round(rate)).append("/с), отказов ").append(rejections.sum())
+                .append(" (").append(Math.round(getRejectedRate() * 1000) / 10.0).append("%), ошибок разбора ")
+                .append(parseErrors.sum()).append(", не найдено ").append(lookupMisses.sum());
+        purchaseLatency.appendTo(sb.append("\n  покупка: "));
+        pricingLatency.appendTo(sb.append("\n  цена: "));
+        return sb.toString();
+    }
+
+    // PurchaseMetricsMXBean
+
+    @Override
+    public long getPurchases() {
+        return purchases.sum();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    @Override
+    public double getRejectedRate() {
+        long rejected = rejections.sum();
+        long attempts = purchases.sum() + rejected;
+        return attempts == 0 ? 0 : (double) rejected / attempts;
+    }
+
+    @Override
+    public double getPurchasesPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0 : purchases.sum() * 1e9 / elapsed;
+    }
+
+    @Override
+    public long getParseErrors() {
+        return parseErrors.sum();
+    }
+
+    @Override
+    public long getLookupMisses() {
+        return lookupMisses.sum();
+    }
+
+    @Override
+    public long getPurchaseLatencyP50() {
+        return purchaseLatency.percentile(0.5);
+    }
+
+    @Override
+    public long getPurchaseLatencyP99() {
+        return purchaseLatency.percentile(0.99);
+    }
+
+    @Override
+    public long getPurchaseLatencyMax() {
+        return purchaseLatency.max();
+    }
+
+    @Override
+    public long getPricingLatencyP50() {
+        return pricingLatency.percentile(0.5);
+    }
+
+    @Override
+    public long getPricingLatencyP99() {
+        return pricingLatency.percentile(0.99);
+    }
+
+    @Override
+    public long getPricingLatencyMax() {
+        return pricingLatency.max();
+    }
+
+    @Override
+    public String getSummary() {
+        return summary(getPurchasesPerSecond());
+    }
+
+    @Override
+    public synchronized void reset() {
+        purchases.reset();
+        rejections.reset();
+        parseErrors.reset();
+        lookupMisses.reset();
+        purchaseLatency.reset();
+        pricingLatency.reset();
+        startNanos = System.nanoTime();
+        lastPurchases = 0;
+        lastNanos = startNanos;
+    }
+}
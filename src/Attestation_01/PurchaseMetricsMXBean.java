@@ -0,0 +1,44 @@
+package Attestation_01;
+
+/**
+ * Метрики покупок для JMX (объект Attestation_01:type=PurchaseMetrics), см. PurchaseMetrics.
+ * Задержки - в наносекундах, процентили - верхние границы корзин гистограммы.
+ */
+public interface PurchaseMetricsMXBean {
+    long getPurchases();
+
+    long getRejections();
+
+    /**
+     * @return Доля отказов «не может позволить себе» среди всех попыток покупки
+     */
+    double getRejectedRate();
+
+    /**
+     * @return Покупок в секунду с момента запуска или последнего сброса
+     */
+    double getPurchasesPerSecond();
+
+    long getParseErrors();
+
+    long getLookupMisses();
+
+    long getPurchaseLatencyP50();
+
+    long getPurchaseLatencyP99();
+
+    long getPurchaseLatencyMax();
+
+    long getPricingLatencyP50();
+
+    long getPricingLatencyP99();
+
+    long getPricingLatencyMax();
+
+    /**
+     * @return Текстовая сводка, как в периодическом выводе
+     */
+    String getSummary();
+
+    void reset();
+}
@@ -0,0 +1,575 @@
+package Attestation_01;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Сервис покупок: App --serve [--port N] [--customers файл --products файл] [параметры App --batch].
+ * Покупатели и продукты загружаются один раз (из файлов или со стандартного ввода двумя разделами,
+ * как в пакетном режиме) и остаются в памяти, а запросы принимаются по TCP только на 127.0.0.1.
+ * Протокол построчный, UTF-8. Запросы можно отправлять подряд, не дожидаясь ответов,
+ * ответы приходят в порядке запросов:
+ * - "Имя - Продукт" -> "OK цена остаток" или "ОТКАЗ остаток" (не хватает денег);
+ * - "? Имя" -> "БАЛАНС остаток";
+ * - неверная строка или неизвестное имя -> "ОШИБКА сообщение".
+ * Все соединения обслуживает один поток с Selector: за один проход он читает всё, что пришло,
+ * и передаёт покупки в PurchaseEngine пакетами, а рабочие потоки движка сообщают результаты,
+ * которые тот же поток записывает в соединения. Покупки и запросы остатка одного покупателя
+ * выполняются по порядку, поэтому остаток учитывает все покупки, отправленные раньше.
+ * Если при выполнении покупки произошла ошибка, движок останавливается: все запросы без ответа
+ * и всё, что ещё придёт по открытым соединениям, получают "ОШИБКА", после чего сервис завершается.
+ * Нагрузочный клиент - PurchaseLoadClient.
+ */
+final class PurchaseService implements PurchaseEngine.Listener {
+    private static final String USAGE = "Использование: App --serve [--port N] [--customers файл --products файл]"
+            + " [--date dd.MM.yyyy] [--threads N] [--compact-bags]";
+    static final int DEFAULT_PORT = 7070;
+    private static final int IN_FLIGHT = 1024; // Запросов одного соединения без ответа (степень двойки)
+    private static final int BUFFER = 1 << 16;
+    private static final int MAX_RESPONSE = 512; // Байтов в самом длинном ответе с запасом
+    private static final long FAILURE_CHECK_MS = 100; // Как часто проверять движок, если событий нет
+
+    private static final byte KIND_PURCHASE = 0;
+    private static final byte KIND_BALANCE = 1;
+    private static final byte KIND_ERROR = 2;
+    private static final byte KIND_STOPPED = 3; // Запрос не выполнен из-за ошибки движка
+    private static final byte[] OK = "OK ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] REJECTED = "ОТКАЗ ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BALANCE = "БАЛАНС ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] STOPPED = "ОШИБКА Сервис остановлен из-за внутренней ошибки".getBytes(StandardCharsets.UTF_8);
+
+    private final CustomerIndex people;
+    private final ProductCatalog catalog;
+    private final PurchaseEngine engine;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private Connection[] connections = new Connection[16]; // По номеру соединения из метки запроса
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int nextId;
+    private final byte[][] errors = new byte[32][]; // Ответы "ОШИБКА ..." по кодам RecordValidator
+    private final StringBuilder money = new StringBuilder(); // Для записи сумм в ответ
+    private Throwable failure; // Ошибка движка: сервис дописывает ответы и останавливается
+
+    // Результаты от рабочих потоков движка: заполняются под блокировкой и забираются целиком
+    private long[] completedTags = new long[1024];
+    private long[] completedPrices = new long[1024];
+    private long[] completedBalances = new long[1024];
+    private int completedSize;
+    private long[] drainTags = new long[1024];
+    private long[] drainPrices = new long[1024];
+    private long[] drainBalances = new long[1024];
+    private Connection[] touched = new Connection[16]; // Соединения, которым пришли результаты
+
+    /**
+     * Соединение клиента: входной и выходной буферы и кольцо запросов без ответа
+     */
+    private static final class Connection {
+        final int id;
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocate(BUFFER);
+        final ByteBuffer out = ByteBuffer.allocate(BUFFER);
+        final byte[] kinds = new byte[IN_FLIGHT];
+        final int[] codes = new int[IN_FLIGHT];
+        final long[] prices = new long[IN_FLIGHT];
+        final long[] balances = new long[IN_FLIGHT];
+        final boolean[] done = new boolean[IN_FLIGHT];
+        int next; // Номер следующего запроса (по модулю 2^32)
+        int answered; // Номер первого запроса без записанного ответа
+        boolean eof; // Клиент закрыл свою сторону
+        boolean closed; // Соединение закрыто, ждём результаты запросов в работе
+        boolean touched;
+
+        Connection(int id, SocketChannel channel, SelectionKey key) {
+            this.id = id;
+            this.channel = channel;
+            this.key = key;
+        }
+
+        int inFlight() {
+            return next - answered;
+        }
+    }
+
+    /**
+     * @param port Порт на 127.0.0.1, 0 - любой свободный
+     */
+    PurchaseService(CustomerIndex people, ProductCatalog catalog, int threads, int port) throws IOException {
+        this.people = people;
+        this.catalog = catalog;
+        this.engine = new PurchaseEngine(threads, catalog, this);
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        String customers = null;
+        String products = null;
+        List<String> batchArgs = new ArrayList<>();
+        BatchIngest.Options options;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port": port = Integer.parseInt(args[++i]); break;
+                    case "--customers": customers = args[++i]; break;
+                    case "--products": products = args[++i]; break;
+                    default: batchArgs.add(args[i]);
+                }
+            }
+            options = BatchIngest.Options.parse(batchArgs.toArray(new String[0]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.out.println(e instanceof IllegalArgumentException ? e.getMessage() : USAGE);
+            return;
+        }
+        if (options.files.length > 0 || (customers == null) != (products == null)) {
+            System.out.println(USAGE);
+            return;
+        }
+        if (options.store != null || options.analyticsTop > 0 || options.shards > 1 || options.replay) {
+            System.out.println("Параметры --store, --analytics, --shards и --replay в режиме сервиса не поддерживаются");
+            return;
+        }
+        options.installClock();
+        try {
+            BatchIngest ingest = new BatchIngest(options);
+            if (customers == null) {
+                ByteLineReader reader = new ByteLineReader(System.in);
+                ingest.loadCustomers(reader);
+                ingest.loadProducts(reader);
+            } else {
+                try (InputStream c = new FileInputStream(customers)) {
+                    ingest.loadCustomers(new ByteLineReader(c));
+                }
+                try (InputStream p = new FileInputStream(products)) {
+                    ingest.loadProducts(new ByteLineReader(p));
+                }
+            }
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            ingest.writeErrors(out);
+            PurchaseService service = new PurchaseService(ingest.people(), ingest.catalog(), options.threads, port);
+            out.write("Сервис покупок: 127.0.0.1:" + service.port() + ", покупателей " + ingest.people().size()
+                    + ", продуктов " + ingest.catalog().size() + "\n");
+            out.flush();
+            service.serve();
+        } catch (IOException e) {
+            System.out.println("Ошибка ввода-вывода: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.out.println("Сервис остановлен из-за ошибки при выполнении покупки: " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int port() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Цикл обслуживания: возвращается, только если поток прерван.
+     * После ошибки движка цикл дописывает ответы открытым соединениям и бросает эту ошибку
+     * (см. {@link PurchaseEngine#finish()}).
+     */
+    void serve() throws IOException, InterruptedException {
+        while (!Thread.currentThread().isInterrupted()) {
+            if (failure == null && engine.failure() != null) {
+                stop();
+            }
+            if (failure != null && !hasOpenConnections()) break;
+            selector.select(FAILURE_CHECK_MS); // Ошибка движка не будит Selector, поэтому ожидание ограничено
+            for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                SelectionKey key = it.next();
+                it.remove();
+                if (!key.isValid()) continue;
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Connection c = (Connection) key.attachment();
+                if (key.isReadable()) {
+                    read(c);
+                }
+                if (!c.closed && key.isWritable()) {
+                    write(c);
+                }
+            }
+            drainCompleted();
+            if (failure == null) {
+                engine.flush(); // Всё, что прочитано за проход, уходит рабочим потокам, не дожидаясь полных пакетов
+            }
+        }
+        if (failure != null) {
+            selector.close();
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw (RuntimeException) failure;
+        }
+    }
+
+    /**
+     * Остановка после ошибки движка: рабочие потоки завершаются, запросы без результата
+     * получают ответ "ОШИБКА", новые соединения не принимаются, а открытые закрываются,
+     * как только им будут записаны все ответы
+     */
+    private void stop() throws IOException, InterruptedException {
+        failure = engine.failure();
+        try {
+            engine.finish(); // После него рабочие потоки больше не вызывают completed
+        } catch (IOException | RuntimeException | Error e) {
+            // Это та же ошибка, что уже получена из failure()
+        }
+        drainCompleted(); // Результаты, пришедшие до остановки, отвечаются как обычно
+        server.close();
+        for (int id = 0; id < nextId; id++) {
+            Connection c = connections[id];
+            if (c == null) continue;
+            for (int seq = c.answered; seq != c.next; seq++) {
+                int slot = seq & (IN_FLIGHT - 1);
+                if (!c.done[slot]) {
+                    c.kinds[slot] = KIND_STOPPED;
+                    c.done[slot] = true;
+                }
+            }
+            if (!c.closed) {
+                c.eof = true; // Новые данные не читаются, соединение закроется после записи ответов
+                c.key.interestOps(c.key.interestOps() & ~SelectionKey.OP_READ);
+            }
+            write(c);
+        }
+    }
+
+    private boolean hasOpenConnections() {
+        for (int id = 0; id < nextId; id++) {
+            if (connections[id] != null && !connections[id].closed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Результат из рабочего потока движка. Selector будится только первым результатом
+     * после очередного разбора, остальные просто добавляются.
+     */
+    @Override
+    public void completed(long tag, long price, long balance) {
+        boolean wake;
+        synchronized (this) {
+            if (completedSize == completedTags.length) {
+                completedTags = Arrays.copyOf(completedTags, completedSize * 2);
+                completedPrices = Arrays.copyOf(completedPrices, completedSize * 2);
+                completedBalances = Arrays.copyOf(completedBalances, completedSize * 2);
+            }
+            completedTags[completedSize] = tag;
+            completedPrices[completedSize] = price;
+            completedBalances[completedSize] = balance;
+            wake = ++completedSize == 1;
+        }
+        if (wake) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Разбор пришедших результатов и запись ответов в соединения
+     */
+    private void drainCompleted() throws InterruptedException {
+        int n;
+        synchronized (this) {
+            n = completedSize;
+            completedSize = 0;
+            long[] tags = completedTags;
+            long[] prices = completedPrices;
+            long[] balances = completedBalances;
+            completedTags = drainTags;
+            completedPrices = drainPrices;
+            completedBalances = drainBalances;
+            drainTags = tags;
+            drainPrices = prices;
+            drainBalances = balances;
+        }
+        int touchedCount = 0;
+        for (int i = 0; i < n; i++) {
+            Connection c = connections[(int) (drainTags[i] >>> 32)];
+            int slot = (int) drainTags[i] & (IN_FLIGHT - 1);
+            c.prices[slot] = drainPrices[i];
+            c.balances[slot] = drainBalances[i];
+            c.done[slot] = true;
+            if (!c.touched) {
+                c.touched = true;
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = c;
+            }
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            touched[i].touched = false;
+            write(touched[i]);
+            touched[i] = null;
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = nextId++;
+            if (id == connections.length) {
+                connections = Arrays.copyOf(connections, id * 2);
+                freeIds = Arrays.copyOf(freeIds, id * 2);
+            }
+        }
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        connections[id] = new Connection(id, channel, key);
+        key.attach(connections[id]);
+    }
+
+    private void read(Connection c) throws InterruptedException {
+        try {
+            if (c.channel.read(c.in) < 0) {
+                c.eof = true;
+            }
+        } catch (IOException e) {
+            close(c);
+            return;
+        }
+        parse(c);
+        if (!c.closed && c.eof && c.inFlight() == 0 && c.out.position() == 0) {
+            close(c);
+        }
+    }
+
+    /**
+     * Разбор полных строк из входного буфера, пока есть место в кольце запросов.
+     * Если кольцо заполнено, чтение из соединения приостанавливается до записи ответов.
+     * После закрытия клиентом своей стороны остаток буфера - последний запрос без перевода строки.
+     */
+    private void parse(Connection c) throws InterruptedException {
+        ByteBuffer in = c.in;
+        byte[] b = in.array();
+        int limit = in.position();
+        int from = 0;
+        while (c.inFlight() < IN_FLIGHT) {
+            int newLine = Bytes.indexOf(b, from, limit, (byte) '\n');
+            if (newLine < 0) {
+                if (c.eof && from < limit) {
+                    request(c, b, from, limit);
+                    from = limit;
+                }
+                break;
+            }
+            request(c, b, from, newLine);
+            from = newLine + 1;
+        }
+        System.arraycopy(b, from, b, 0, limit - from);
+        in.position(limit - from);
+        if (!in.hasRemaining() && c.inFlight() < IN_FLIGHT) {
+            close(c); // Строка длиннее буфера: это не запрос
+            return;
+        }
+        boolean reading = !c.eof && c.inFlight() < IN_FLIGHT;
+        int ops = reading ? c.key.interestOps() | SelectionKey.OP_READ : c.key.interestOps() & ~SelectionKey.OP_READ;
+        if (c.inFlight() > 0 && c.done[c.answered & (IN_FLIGHT - 1)]) {
+            ops |= SelectionKey.OP_WRITE; // Первый запрос без ответа - ошибка: движок о нём не сообщит, ответ пишется сразу
+        }
+        c.key.interestOps(ops);
+    }
+
+    /**
+     * Один запрос: ошибка отвечается сразу (в порядке очереди), покупка и запрос остатка уходят в движок
+     */
+    private void request(Connection c, byte[] b, int from, int to) throws InterruptedException {
+        from = Bytes.trimStart(b, from, to);
+        to = Bytes.trimEnd(b, from, to);
+        if (from == to) return;
+
+        int seq = c.next++;
+        int slot = seq & (IN_FLIGHT - 1);
+        long tag = ((long) c.id << 32) | (seq & 0xFFFFFFFFL);
+        c.done[slot] = false;
+        if (failure != null) {
+            c.kinds[slot] = KIND_STOPPED; // Движок остановлен: запрос из уже прочитанных данных не выполняется
+            c.done[slot] = true;
+            return;
+        }
+        if (b[from] == '?') {
+            int nameFrom = Bytes.trimStart(b, from + 1, to);
+            int personId = people.find(b, nameFrom, to);
+            if (personId < 0) {
+                error(c, slot, RecordValidator.NOT_FOUND);
+                return;
+            }
+            c.kinds[slot] = KIND_BALANCE;
+            engine.submit(personId, people.person(personId), PurchaseEngine.BALANCE, PurchaseEngine.TODAY, tag);
+            return;
+        }
+        int partsEnd = Bytes.stripTrailing(b, from, to, (byte) '-');
+        int dash = Bytes.indexOf(b, from, partsEnd, (byte) '-');
+        if (dash < 0 || Bytes.indexOf(b, dash + 1, partsEnd, (byte) '-') >= 0) {
+            error(c, slot, RecordValidator.PURCHASE_FORMAT);
+            return;
+        }
+        int personFrom = Bytes.trimStart(b, from, dash);
+        int personId = people.find(b, personFrom, Bytes.trimEnd(b, personFrom, dash));
+        int productFrom = Bytes.trimStart(b, dash + 1, partsEnd);
+        int productId = catalog.find(b, productFrom, Bytes.trimEnd(b, productFrom, partsEnd));
+        if (personId < 0 || productId < 0) {
+            error(c, slot, RecordValidator.NOT_FOUND);
+            return;
+        }
+        c.kinds[slot] = KIND_PURCHASE;
+        engine.submit(personId, people.person(personId), productId, PurchaseEngine.TODAY, tag);
+    }
+
+    private static void error(Connection c, int slot, int code) {
+        c.kinds[slot] = KIND_ERROR;
+        c.codes[slot] = code;
+        c.done[slot] = true;
+    }
+
+    /**
+     * Запись готовых ответов по порядку запросов. Если сокет не принимает всё,
+     * остаток ждёт OP_WRITE; освободившееся место в кольце снова открывает чтение.
+     */
+    private void write(Connection c) throws InterruptedException {
+        if (c.closed) {
+            // Ответы больше некому писать: ждём только, пока движок вернёт все метки соединения
+            while (c.inFlight() > 0 && c.done[c.answered & (IN_FLIGHT - 1)]) {
+                c.answered++;
+            }
+            release(c);
+            return;
+        }
+        boolean wasFull = c.inFlight() == IN_FLIGHT;
+        ByteBuffer out = c.out;
+        try {
+            while (c.inFlight() > 0 && c.done[c.answered & (IN_FLIGHT - 1)]) {
+                if (out.remaining() < MAX_RESPONSE && !send(c)) break;
+                answer(c, c.answered & (IN_FLIGHT - 1), out);
+                c.answered++;
+            }
+            send(c);
+        } catch (IOException e) {
+            close(c);
+            return;
+        }
+        int ops = c.key.interestOps();
+        c.key.interestOps(out.position() > 0 ? ops | SelectionKey.OP_WRITE : ops & ~SelectionKey.OP_WRITE);
+        if (wasFull && c.inFlight() < IN_FLIGHT) {
+            parse(c); // Во входном буфере могли остаться запросы, разбор которых был приостановлен
+        }
+        if (!c.closed && c.eof && c.inFlight() == 0 && out.position() == 0) {
+            close(c);
+        }
+    }
+
+    /**
+     * Отправка накопленного вывода
+     * @return true, если в буфере снова есть место на ответ
+     */
+    private static boolean send(Connection c) throws IOException {
+        ByteBuffer out = c.out;
+        out.flip();
+        c.channel.write(out);
+        out.compact();
+        return out.remaining() >= MAX_RESPONSE;
+    }
+
+    private void answer(Connection c, int slot, ByteBuffer out) {
+        switch (c.kinds[slot]) {
+            case KIND_ERROR:
+                out.put(errorBytes(c.codes[slot]));
+                break;
+            case KIND_STOPPED:
+                out.put(STOPPED);
+                break;
+            case KIND_BALANCE:
+                out.put(BALANCE);
+                putMoney(out, c.balances[slot]);
+                break;
+            default:
+                if (c.prices[slot] == PurchaseEngine.REJECTED) {
+                    out.put(REJECTED);
+                } else {
+                    out.put(OK);
+                    putMoney(out, c.prices[slot]);
+                    out.put((byte) ' ');
+                }
+                putMoney(out, c.balances[slot]);
+        }
+        out.put((byte) '\n');
+    }
+
+    /**
+     * Сумма в виде "рубли.копейки" (только ASCII, поэтому символы пишутся байтами)
+     */
+    private void putMoney(ByteBuffer out, long minor) {
+        money.setLength(0);
+        Money.appendTo(money, minor);
+        for (int i = 0; i < money.length(); i++) {
+            out.put((byte) money.charAt(i));
+        }
+    }
+
+    private byte[] errorBytes(int code) {
+        if (errors[code] == null) {
+            errors[code] = ("ОШИБКА " + RecordValidator.message(code)).getBytes(StandardCharsets.UTF_8);
+        }
+        return errors[code];
+    }
+
+    /**
+     * Закрытие соединения; номер освобождается, когда движок вернёт все его запросы
+     */
+    private void close(Connection c) {
+        c.closed = true;
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException ignored) {
+            // Соединение уже разорвано
+        }
+        while (c.inFlight() > 0 && c.done[c.answered & (IN_FLIGHT - 1)]) {
+            c.answered++;
+        }
+        release(c);
+    }
+
+    private void release(Connection c) {
+        if (c.inFlight() == 0 && connections[c.id] == c) {
+            connections[c.id] = null;
+            freeIds[freeCount++] = c.id;
+        }
+    }
+}
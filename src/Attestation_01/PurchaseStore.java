@@ -0,0 +1,83 @@
+package Attestation_01;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Хранилище пакетного режима в каталоге: последний снимок (StoreSnapshot) и журнал
+ * покупок после него (PurchaseJournal).
+ * Восстановление: загрузка снимка и повтор уцелевших записей журнала по записанным ценам.
+ * Контрольная точка: новый снимок следующего поколения, затем пустой журнал этого поколения.
+ * Сбой между этими шагами оставляет журнал старого поколения, который уже учтён в снимке
+ * и поэтому при следующем восстановлении пропускается.
+ */
+final class PurchaseStore implements AutoCloseable {
+    private final Path dir;
+    private long generation; // Поколение последнего снимка, -1 - снимков ещё не было
+    private PurchaseJournal journal;
+
+    private PurchaseStore(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Открытие хранилища и восстановление состояния в пустые индекс и каталог.
+     * Повтор журнала не учитывается в метриках покупок (PurchaseMetrics).
+     */
+    static PurchaseStore recover(Path dir, CustomerIndex people, ProductCatalog catalog) throws IOException {
+        Files.createDirectories(dir);
+        PurchaseStore store = new PurchaseStore(dir);
+        store.generation = StoreSnapshot.read(dir, people, catalog);
+        store.journal = PurchaseJournal.open(dir, store.generation, (customerId, productId, price) -> {
+            // В журнале только выполненные покупки: неизвестный номер или отказ означают расхождение со снимком
+            if (customerId < 0 || customerId >= people.size() || productId < 0 || productId >= catalog.size()
+                    || !people.person(customerId).charge(catalog.product(productId), price)) {
+                throw new IOException("Журнал повреждён: " + dir.resolve(PurchaseJournal.FILE)
+                        + " не соответствует снимку (покупатель " + customerId + ", продукт " + productId + ")");
+            }
+        });
+        return store;
+    }
+
+    /**
+     * Контрольная точка: снимок текущего состояния и новый пустой журнал.
+     * Вызывается, когда покупки не выполняются.
+     */
+    void checkpoint(CustomerIndex people, ProductCatalog catalog) throws IOException {
+        journal.commit();
+        StoreSnapshot.write(dir, generation + 1, people, catalog);
+        generation++;
+        journal.close();
+        journal = PurchaseJournal.create(dir, generation);
+    }
+
+    /**
+     * Атомарная замена файла уже записанным на диск временным. Переименование - запись в каталоге,
+     * поэтому после него на диск сбрасывается и сам каталог, иначе при сбое может остаться прежний файл.
+     */
+    static void replace(Path tmp, Path target) throws IOException {
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel directory;
+        try {
+            directory = FileChannel.open(target.toAbsolutePath().getParent(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            return; // Каталог не открывается как файл (Windows): там сбросить его нельзя и не требуется
+        }
+        try (directory) {
+            directory.force(true);
+        }
+    }
+
+    PurchaseJournal journal() {
+        return journal;
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+}
@@ -0,0 +1,330 @@
+package Attestation_01;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Проверка покупателей и продуктов без исключений.
+ * Каждая проверка возвращает код ошибки (OK, если ошибок нет) и проверяет символы вручную,
+ * без регулярных выражений и промежуточных строк. Сеттеры Person и Product превращают код
+ * в IllegalArgumentException, а массовая загрузка складывает коды в ValidationReport
+ * с номерами строк и продолжает работу со следующей записи.
+ */
+final class RecordValidator {
+    static final int OK = 0;
+    static final int PERSON_NAME_EMPTY = 1;
+    static final int PERSON_NAME_SHORT = 2;
+    static final int MONEY_NEGATIVE = 3;
+    static final int PRODUCT_NAME_EMPTY = 4;
+    static final int PRODUCT_NAME_SHORT = 5;
+    static final int PRODUCT_NAME_DIGITS = 6;
+    static final int PRICE_NOT_POSITIVE = 7;
+    static final int DISCOUNT_NEGATIVE = 8;
+    static final int AMOUNT_FORMAT = 9;
+    static final int CUSTOMER_FORMAT = 10;
+    static final int PRODUCT_FORMAT = 11;
+    static final int DISCOUNT_PRODUCT_FORMAT = 12;
+    static final int NAME_PRICE_FORMAT = 13;
+    static final int PURCHASE_FORMAT = 14;
+    static final int NOT_FOUND = 15;
+    static final int DISCOUNT_PERIOD = 16;
+    static final int DISCOUNT_OVERLAP = 17;
+    static final int EVENT_DATE = 18;
+
+    private static final String[] MESSAGES = {
+            "OK",
+            "Имя не может быть пустым",
+            "Имя не может быть короче 3 символов",
+            "Деньги не могут быть отрицательными",
+            "Название продукта не может быть пустым",
+            "Название продукта не может быть короче 3 символов",
+            "Название продукта не может состоять только из цифр",
+            "Цена продукта должна быть положительной",
+            "Скидка не может быть отрицательной",
+            "Неверный формат суммы",
+            "Ошибка формата. Используйте: Имя = Сумма",
+            "Неверный формат. Используйте: Название = Цена",
+            "Неверный формат для скидочного продукта. Используйте: Название = Цена : Скидка : dd.MM.yyyy",
+            "Неверный формат названия и цены",
+            "Ошибка формата. Используйте: Имя покупателя - Название продукта",
+            "Ошибка: Покупатель или продукт не найдены",
+            "Неверный период скидки. Используйте: dd.MM.yyyy или dd.MM.yyyy-dd.MM.yyyy",
+            "Периоды скидок пересекаются",
+            "Неверная дата покупки. Используйте: Имя покупателя - Название продукта @ dd.MM.yyyy",
+    };
+
+    private RecordValidator() {
+    }
+
+    static String message(int code) {
+        return MESSAGES[code];
+    }
+
+    /**
+     * Превращение кода ошибки в исключение (для сеттеров)
+     * @throws IllegalArgumentException Если код не OK
+     */
+    static void require(int code) {
+        if (code != OK) {
+            throw new IllegalArgumentException(MESSAGES[code]);
+        }
+    }
+
+    /**
+     * Имя покупателя: не пустое и не короче 3 символов без учёта пробелов по краям
+     */
+    static int checkPersonName(CharSequence name) {
+        int length = trimmedLength(name);
+        if (length == 0) return PERSON_NAME_EMPTY;
+        if (length < 3) return PERSON_NAME_SHORT;
+        return OK;
+    }
+
+    static int checkPersonName(byte[] b, int from, int to) {
+        int length = charCount(b, from, to);
+        if (length == 0) return PERSON_NAME_EMPTY;
+        if (length < 3) return PERSON_NAME_SHORT;
+        return OK;
+    }
+
+    static int checkMoney(long money) {
+        return money < 0 ? MONEY_NEGATIVE : OK;
+    }
+
+    /**
+     * Название продукта: не пустое, не короче 3 символов и не только из цифр
+     */
+    static int checkProductName(CharSequence name) {
+        int length = trimmedLength(name);
+        if (length == 0) return PRODUCT_NAME_EMPTY;
+        if (length < 3) return PRODUCT_NAME_SHORT;
+        int from = 0;
+        while (name.charAt(from) <= ' ') from++;
+        for (int i = from; i < from + length; i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') return OK;
+        }
+        return PRODUCT_NAME_DIGITS;
+    }
+
+    static int checkProductName(byte[] b, int from, int to) {
+        from = Bytes.trimStart(b, from, to);
+        to = Bytes.trimEnd(b, from, to);
+        int length = charCount(b, from, to);
+        if (length == 0) return PRODUCT_NAME_EMPTY;
+        if (length < 3) return PRODUCT_NAME_SHORT;
+        for (int i = from; i < to; i++) {
+            if (b[i] < '0' || b[i] > '9') return OK;
+        }
+        return PRODUCT_NAME_DIGITS;
+    }
+
+    static int checkPrice(long price) {
+        return price <= 0 ? PRICE_NOT_POSITIVE : OK;
+    }
+
+    static int checkDiscount(long discount) {
+        return discount < 0 ? DISCOUNT_NEGATIVE : OK;
+    }
+
+    /**
+     * Длина строки без пробельных символов по краям (как name.trim().length()), 0 для null
+     */
+    private static int trimmedLength(CharSequence s) {
+        if (s == null) return 0;
+        int from = 0;
+        int to = s.length();
+        while (from < to && s.charAt(from) <= ' ') from++;
+        while (to > from && s.charAt(to - 1) <= ' ') to--;
+        return to - from;
+    }
+
+    /**
+     * Количество символов Java (UTF-16) в обрезанном диапазоне байтов UTF-8
+     */
+    private static int charCount(byte[] b, int from, int to) {
+        from = Bytes.trimStart(b, from, to);
+        to = Bytes.trimEnd(b, from, to);
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int c = b[i] & 0xFF;
+            if ((c & 0xC0) != 0x80) count++; // Первый байт символа
+            if (c >= 0xF0) count++; // Символ вне BMP занимает два char
+        }
+        return count;
+    }
+
+    /**
+     * Массовая загрузка покупателей "Имя = Сумма" до пустой строки или конца потока.
+     * Верные записи попадают в индекс, неверные - в отчёт с номерами строк.
+     * @return Отчёт об отклонённых строках
+     */
+    static ValidationReport loadCustomers(ByteLineReader reader, CustomerIndex into, boolean compactBags) throws IOException {
+        ValidationReport report = new ValidationReport("Покупатели");
+        while (reader.next()) {
+            byte[] b = reader.buffer();
+            int from = Bytes.trimStart(b, reader.start(), reader.end());
+            int to = Bytes.trimEnd(b, from, reader.end());
+            if (from == to) break;
+
+            int partsEnd = Bytes.stripTrailing(b, from, to, (byte) '=');
+            int eq = Bytes.indexOf(b, from, partsEnd, (byte) '=');
+            if (eq < 0 || Bytes.indexOf(b, eq + 1, partsEnd, (byte) '=') >= 0) {
+                report.add(reader.lineNumber(), CUSTOMER_FORMAT);
+                continue;
+            }
+            int nameFrom = Bytes.trimStart(b, from, eq);
+            int nameTo = Bytes.trimEnd(b, nameFrom, eq);
+            long money = Money.tryParse(b, eq + 1, partsEnd);
+            int error = money == Money.INVALID ? AMOUNT_FORMAT : checkPersonName(b, nameFrom, nameTo);
+            if (error == OK) error = checkMoney(money);
+            if (error != OK) {
+                report.add(reader.lineNumber(), error);
+                continue;
+            }
+            into.put(b, nameFrom, nameTo, new Person(Bytes.decode(b, nameFrom, nameTo), money, compactBags), reader.lineNumber());
+            report.accept();
+        }
+        return report;
+    }
+
+    /**
+     * Массовая загрузка продуктов до пустой строки или конца потока:
+     * "Название = Цена", "Название = Цена : Скидка : dd.MM.yyyy" или расписание скидок
+     * "Название = Цена : Скидка : Период [: Скидка : Период]..." (см. DiscountSchedule).
+     * Верные записи сразу попадают в массивы каталога без создания объектов Product.
+     * @return Отчёт об отклонённых строках
+     */
+    static ValidationReport loadProducts(ByteLineReader reader, ProductCatalog into) throws IOException {
+        ValidationReport report = new ValidationReport("Продукты");
+        // Окна расписания текущей строки, массивы переиспользуются между строками
+        long[] starts = new long[4];
+        long[] ends = new long[4];
+        long[] amounts = new long[4];
+        while (reader.next()) {
+            byte[] b = reader.buffer();
+            int from = Bytes.trimStart(b, reader.start(), reader.end());
+            int to = Bytes.trimEnd(b, from, reader.end());
+            if (from == to) break;
+
+            int namePriceEnd;
+            long discount = 0;
+            String validUntil = null;
+            int windows = 0; // Окон расписания, 0 - не больше одного срока «до dd.MM.yyyy»
+            int windowError = OK; // Первая ошибка в окнах расписания
+            boolean discounted = false;
+            if (Bytes.indexOf(b, from, to, (byte) ':') >= 0) {
+                // Скидочный продукт: Название = Цена : Скидка : Период [: Скидка : Период]...
+                int partsEnd = Bytes.stripTrailing(b, from, to, (byte) ':');
+                int c1 = Bytes.indexOf(b, from, partsEnd, (byte) ':');
+                int parts = 1;
+                for (int c = c1; c >= 0; c = Bytes.indexOf(b, c + 1, partsEnd, (byte) ':')) {
+                    parts++;
+                }
+                if (c1 < 0 || parts < 3 || parts % 2 == 0) {
+                    report.add(reader.lineNumber(), DISCOUNT_PRODUCT_FORMAT);
+                    continue;
+                }
+                discounted = true;
+                namePriceEnd = Bytes.stripTrailing(b, from, c1, (byte) '=');
+                int c2 = Bytes.indexOf(b, c1 + 1, partsEnd, (byte) ':');
+                int periodEnd = parts == 3 ? partsEnd : Bytes.indexOf(b, c2 + 1, partsEnd, (byte) ':');
+                if (parts == 3 && !isPeriod(b, c2 + 1, partsEnd)) {
+                    // Один срок «до dd.MM.yyyy» (всё, что не похоже на период, в том числе даты через '-'):
+                    // неверная дата, как и раньше, просто отключает скидку
+                    discount = Money.tryParse(b, c1 + 1, c2);
+                    int dateFrom = Bytes.trimStart(b, c2 + 1, partsEnd);
+                    validUntil = Bytes.decode(b, dateFrom, Bytes.trimEnd(b, dateFrom, partsEnd));
+                } else {
+                    for (int amountFrom = c1 + 1; ; ) {
+                        if (windows == starts.length) {
+                            starts = Arrays.copyOf(starts, windows * 2);
+                            ends = Arrays.copyOf(ends, windows * 2);
+                            amounts = Arrays.copyOf(amounts, windows * 2);
+                        }
+                        amounts[windows] = Money.tryParse(b, amountFrom, c2);
+                        if (amounts[windows] == Money.INVALID) {
+                            windowError = AMOUNT_FORMAT;
+                        } else if (!parsePeriod(b, c2 + 1, periodEnd, starts, ends, windows) && windowError == OK) {
+                            windowError = DISCOUNT_PERIOD;
+                        }
+                        windows++;
+                        if (periodEnd == partsEnd) break;
+                        amountFrom = periodEnd + 1;
+                        c2 = Bytes.indexOf(b, amountFrom, partsEnd, (byte) ':');
+                        periodEnd = Bytes.indexOf(b, c2 + 1, partsEnd, (byte) ':');
+                        if (periodEnd < 0) periodEnd = partsEnd;
+                    }
+                }
+            } else {
+                namePriceEnd = Bytes.stripTrailing(b, from, to, (byte) '=');
+            }
+            int eq = Bytes.indexOf(b, from, namePriceEnd, (byte) '=');
+            if (eq < 0 || Bytes.indexOf(b, eq + 1, namePriceEnd, (byte) '=') >= 0) {
+                report.add(reader.lineNumber(), discounted ? NAME_PRICE_FORMAT : PRODUCT_FORMAT);
+                continue;
+            }
+            int nameFrom = Bytes.trimStart(b, from, eq);
+            int nameTo = Bytes.trimEnd(b, nameFrom, eq);
+            long price = Money.tryParse(b, eq + 1, namePriceEnd);
+            int error = price == Money.INVALID || discount == Money.INVALID || windowError == AMOUNT_FORMAT
+                    ? AMOUNT_FORMAT : checkProductName(b, nameFrom, nameTo);
+            if (error == OK) error = checkPrice(price);
+            if (error == OK) error = checkDiscount(discount);
+            if (error == OK) error = windowError;
+            if (error == OK && windows > 0) error = DiscountSchedule.sortAndCheck(starts, ends, amounts, windows);
+            if (error != OK) {
+                report.add(reader.lineNumber(), error);
+                continue;
+            }
+            if (windows > 0) {
+                into.put(b, nameFrom, nameTo, price, starts, ends, amounts, windows);
+            } else {
+                into.put(b, nameFrom, nameTo, price, discount, validUntil);
+            }
+            report.accept();
+        }
+        return report;
+    }
+
+    /**
+     * @return true, если текст записан в виде периода "dd.MM.yyyy-dd.MM.yyyy" (сами даты не проверяются)
+     */
+    private static boolean isPeriod(byte[] b, int from, int to) {
+        from = Bytes.trimStart(b, from, to);
+        to = Bytes.trimEnd(b, from, to);
+        int dash = Bytes.indexOf(b, from, to, (byte) '-');
+        return dash >= 0 && isDateShape(b, from, Bytes.trimEnd(b, from, dash))
+                && isDateShape(b, Bytes.trimStart(b, dash + 1, to), to);
+    }
+
+    /**
+     * @return true, если текст состоит из цифр и точек по шаблону dd.MM.yyyy
+     */
+    private static boolean isDateShape(byte[] b, int from, int to) {
+        if (to - from != 10) return false;
+        for (int i = 0; i < 10; i++) {
+            boolean dot = i == 2 || i == 5;
+            if (dot ? b[from + i] != '.' : b[from + i] < '0' || b[from + i] > '9') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Разбор периода скидки "dd.MM.yyyy" (без начала) или "dd.MM.yyyy-dd.MM.yyyy" в окно i
+     * @return false, если период записан неверно
+     */
+    private static boolean parsePeriod(byte[] b, int from, int to, long[] starts, long[] ends, int i) {
+        from = Bytes.trimStart(b, from, to);
+        to = Bytes.trimEnd(b, from, to);
+        int dash = Bytes.indexOf(b, from, to, (byte) '-');
+        if (dash < 0) {
+            starts[i] = DiscountSchedule.OPEN_START;
+            ends[i] = DiscountDate.parse(b, from, to);
+            return ends[i] != DiscountDate.NO_DISCOUNT;
+        }
+        starts[i] = DiscountDate.parse(b, from, Bytes.trimEnd(b, from, dash));
+        ends[i] = DiscountDate.parse(b, Bytes.trimStart(b, dash + 1, to), to);
+        return starts[i] != DiscountDate.NO_DISCOUNT && ends[i] != DiscountDate.NO_DISCOUNT;
+    }
+}
@@ -0,0 +1,366 @@
+package Attestation_01;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пакетный режим в нескольких процессах: App --batch --shards N.
+ * Покупатели делятся между N процессами-обработчиками по хешу имени, а каталог продуктов
+ * копируется в каждый. Координатор читает ввод и по каналу стандартного ввода отправляет
+ * строку покупателя и строку покупки процессу, которому принадлежит покупатель, а строки
+ * продуктов - всем. Каждый обработчик - отдельная JVM с обычным BatchIngest (и своими потоками
+ * --threads), поэтому куча и ядра всех процессов складываются.
+ * Каждая строка уходит вместе со своим номером во вводе (см. ByteLineReader.numbered), обработчик
+ * возвращает ошибки и строки отчёта с этими номерами, упорядоченные по ним, и координатор сливает
+ * выводы обработчиков по мере чтения, не храня ничего на каждую строку или покупателя,
+ * так что отчёт совпадает с отчётом одного процесса.
+ * Параметры --store и --analytics в этом режиме не поддерживаются.
+ * Обработчик запускается как java -cp (classpath координатора) Attestation_01.ShardedIngest [параметры].
+ */
+final class ShardedIngest {
+    private static final String[] SECTIONS = {"Покупатели", "Продукты", "Покупки"};
+    private static final byte[] END = "END".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMPTY = new byte[0];
+    private static final int REPORT = 3; // Этап вывода обработчика после ошибок трёх разделов
+    private static final int DONE = 4; // Итоговая запись "S" прочитана
+
+    private final BatchIngest.Options options;
+    private final Shard[] shards;
+    private final byte[] digits = new byte[20]; // Для записи номеров строк
+    private long submitted; // Покупок, переданных на выполнение во всех процессах
+
+    /**
+     * Процесс-обработчик и текущая запись его вывода.
+     * Записи идут этапами: ошибки покупателей, продуктов и покупок, строки отчёта, итог;
+     * внутри этапа - по возрастанию номеров строк.
+     */
+    private static final class Shard {
+        final int index;
+        Process process;
+        OutputStream input; // Стандартный ввод процесса
+        BufferedReader output; // Стандартный вывод процесса
+        String record; // Текущая запись
+        int stage; // Раздел ошибки (0-2), REPORT или DONE
+        long line; // Номер строки исходного ввода
+        int code; // Код ошибки
+        int text; // Начало строки отчёта в записи
+        long submitted;
+
+        Shard(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Переход к следующей записи вывода
+         * @throws IOException Если вывод оборвался до итога или запись неверна
+         */
+        void advance() throws IOException {
+            record = output.readLine();
+            if (record == null) {
+                throw new IOException("Процесс-обработчик " + index + " завершился, не выдав весь результат");
+            }
+            try {
+                int first = record.indexOf('\t');
+                int second = record.indexOf('\t', first + 1);
+                int previous = stage;
+                switch (record.charAt(0)) {
+                    case 'E':
+                        int third = record.indexOf('\t', second + 1);
+                        stage = Integer.parseInt(record, first + 1, second, 10);
+                        line = Long.parseLong(record, second + 1, third, 10);
+                        code = Integer.parseInt(record, third + 1, record.length(), 10);
+                        break;
+                    case 'R':
+                        stage = REPORT;
+                        line = Long.parseLong(record, first + 1, second, 10);
+                        text = second + 1;
+                        break;
+                    case 'S':
+                        stage = DONE;
+                        submitted = Long.parseLong(record, first + 1, record.length(), 10);
+                        break;
+                    default:
+                        throw new IOException("Неизвестная запись обработчика: " + record);
+                }
+                if (stage < previous || stage > DONE) {
+                    throw new IOException("Записи обработчика не по порядку: " + record);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Неверный вывод обработчика", e);
+            }
+        }
+    }
+
+    ShardedIngest(BatchIngest.Options options) {
+        this.options = options;
+        this.shards = new Shard[options.shards];
+    }
+
+    /**
+     * Процесс-обработчик: разделы со стандартного ввода, результат в стандартный вывод строками
+     * "E раздел строка код", "R строка отчёт" и "S покупок" (поля через табуляцию)
+     */
+    public static void main(String[] args) {
+        try {
+            BatchIngest.Options options = BatchIngest.Options.parse(args);
+            options.installClock();
+            BatchIngest ingest = new BatchIngest(options);
+            ByteLineReader reader = ByteLineReader.numbered(System.in);
+            ingest.loadCustomers(reader);
+            ingest.loadProducts(reader);
+            ingest.processPurchases(reader);
+
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+            writeErrors(out, 0, ingest.customerErrors());
+            writeErrors(out, 1, ingest.productErrors());
+            writeErrors(out, 2, ingest.purchaseErrors());
+            CustomerIndex people = ingest.people();
+            for (int id = 0; id < people.size(); id++) {
+                out.append("R\t").append(Long.toString(people.firstLine(id))).append('\t');
+                people.person(id).appendTo(out);
+                out.write('\n');
+            }
+            out.append("S\t").append(Long.toString(ingest.submitted())).append('\n');
+            out.flush();
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Обработчик: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+    }
+
+    private static void writeErrors(Writer out, int section, ValidationReport report) throws IOException {
+        for (int i = 0; i < report.size(); i++) {
+            out.append("E\t").append(Integer.toString(section)).append('\t').append(Long.toString(report.line(i)))
+                    .append('\t').append(Integer.toString(report.code(i))).append('\n');
+        }
+    }
+
+    /**
+     * Весь прогон: запуск обработчиков, раздача трёх разделов, слияние ошибок и отчёта
+     * @param in Вход всех разделов подряд, если файлы разделов не заданы
+     */
+    void run(InputStream in, Writer out) throws IOException, InterruptedException {
+        options.installClock(); // До запуска обработчиков: их дата берётся из PriceClock
+        try {
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = start(i);
+            }
+            String[] files = options.files;
+            if (files.length == 0) {
+                ByteLineReader reader = new ByteLineReader(in);
+                routeCustomers(reader);
+                routeProducts(reader);
+                routePurchases(reader);
+            } else {
+                try (InputStream c = new FileInputStream(files[0])) {
+                    routeCustomers(new ByteLineReader(c));
+                }
+                try (InputStream p = new FileInputStream(files[1])) {
+                    routeProducts(new ByteLineReader(p));
+                }
+                try (InputStream s = new FileInputStream(files[2])) {
+                    routePurchases(new ByteLineReader(s));
+                }
+            }
+            for (Shard shard : shards) {
+                shard.input.close();
+            }
+            // Обработчик пишет вывод только после всего ввода, поэтому он читается уже после раздачи
+            for (Shard shard : shards) {
+                shard.advance();
+            }
+            writeErrors(out);
+            writeReport(out);
+            for (Shard shard : shards) {
+                if (shard.stage != DONE) {
+                    throw new IOException("Записи обработчика не по порядку: " + shard.record);
+                }
+                submitted += shard.submitted;
+                int exit = shard.process.waitFor();
+                if (exit != 0) {
+                    throw new IOException("Процесс-обработчик " + shard.index + " завершился с кодом " + exit);
+                }
+            }
+            out.flush();
+        } finally {
+            for (Shard shard : shards) {
+                if (shard != null) {
+                    shard.process.destroy();
+                    shard.output.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Покупок, переданных на выполнение во всех процессах
+     */
+    long submitted() {
+        return submitted;
+    }
+
+    private Shard start(int index) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("attestation.")) { // Метрики и их период - как у координатора
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardedIngest.class.getName());
+        // Дата фиксируется один раз, чтобы все процессы оценивали покупки на один день
+        command.add("--date");
+        command.add(DiscountDate.format(PriceClock.current().today()));
+        command.add("--threads");
+        command.add(Integer.toString(options.threads));
+        if (options.compactBags) {
+            command.add("--compact-bags");
+        }
+        if (options.replay) {
+            command.add("--replay");
+        }
+        Shard shard = new Shard(index);
+        shard.process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        shard.input = new BufferedOutputStream(shard.process.getOutputStream(), 1 << 16);
+        shard.output = new BufferedReader(new InputStreamReader(shard.process.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+        return shard;
+    }
+
+    /**
+     * Покупатели до пустой строки или конца потока: строка уходит владельцу имени
+     * (имя выделяется так же, как в RecordValidator.loadCustomers)
+     */
+    private void routeCustomers(ByteLineReader reader) throws IOException {
+        while (reader.next()) {
+            byte[] b = reader.buffer();
+            int from = Bytes.trimStart(b, reader.start(), reader.end());
+            int to = Bytes.trimEnd(b, from, reader.end());
+            if (from == to) break;
+            int eq = Bytes.indexOf(b, from, Bytes.stripTrailing(b, from, to, (byte) '='), (byte) '=');
+            send(shards[eq < 0 ? 0 : shardOf(b, from, eq)], b, reader.start(), reader.end(), reader.lineNumber());
+        }
+        broadcast(EMPTY);
+    }
+
+    /**
+     * Продукты до пустой строки или конца потока: каждая строка уходит всем обработчикам
+     */
+    private void routeProducts(ByteLineReader reader) throws IOException {
+        while (reader.next()) {
+            byte[] b = reader.buffer();
+            int from = Bytes.trimStart(b, reader.start(), reader.end());
+            if (from == Bytes.trimEnd(b, from, reader.end())) break;
+            for (Shard shard : shards) {
+                send(shard, b, reader.start(), reader.end(), reader.lineNumber());
+            }
+        }
+        broadcast(EMPTY);
+    }
+
+    /**
+     * Покупки до строки END или конца потока: строка уходит владельцу покупателя
+     * (имя до первого '-', как в BatchIngest.processPurchases)
+     */
+    private void routePurchases(ByteLineReader reader) throws IOException {
+        while (reader.next()) {
+            byte[] b = reader.buffer();
+            int from = Bytes.trimStart(b, reader.start(), reader.end());
+            int to = Bytes.trimEnd(b, from, reader.end());
+            if (Bytes.equalsAscii(b, from, to, "END")) break;
+            int dash = Bytes.indexOf(b, from, to, (byte) '-');
+            send(shards[dash < 0 ? 0 : shardOf(b, from, dash)], b, reader.start(), reader.end(), reader.lineNumber());
+        }
+        broadcast(END);
+    }
+
+    /**
+     * Номер процесса, которому принадлежит имя в [from, to) (края обрезаются)
+     */
+    private int shardOf(byte[] b, int from, int to) {
+        from = Bytes.trimStart(b, from, to);
+        to = Bytes.trimEnd(b, from, to);
+        int h = 1;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + b[i];
+        }
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+
+    /**
+     * Отправка строки [from, to) обработчику вместе с её номером во вводе
+     */
+    private void send(Shard shard, byte[] b, int from, int to, long globalLine) throws IOException {
+        ByteLineReader.writeNumbered(shard.input, globalLine, b, from, to, digits);
+    }
+
+    /**
+     * Служебная строка (конец раздела) всем обработчикам, во вводе её номера нет
+     */
+    private void broadcast(byte[] line) throws IOException {
+        for (Shard shard : shards) {
+            send(shard, line, 0, line.length, 0);
+        }
+    }
+
+    /**
+     * Ошибки всех разделов в порядке строк исходного ввода.
+     * Продукты есть у каждого обработчика, поэтому их ошибки берутся у первого, а у остальных пропускаются.
+     */
+    private void writeErrors(Writer out) throws IOException {
+        for (int section = 0; section < SECTIONS.length; section++) {
+            int count = section == 1 ? 1 : shards.length;
+            for (int i; (i = next(count, section)) >= 0; shards[i].advance()) {
+                PurchaseMetrics.inputError(shards[i].code);
+                ValidationReport.appendLine(out, SECTIONS[section], shards[i].line, shards[i].code);
+            }
+            for (int i = count; i < shards.length; i++) {
+                while (shards[i].stage == section) {
+                    shards[i].advance();
+                }
+            }
+        }
+    }
+
+    /**
+     * Отчёт: покупатели в порядке первого появления во вводе, как в BatchIngest.writeReport
+     */
+    private void writeReport(Writer out) throws IOException {
+        out.write("\nРезультаты:\n");
+        for (int i; (i = next(shards.length, REPORT)) >= 0; shards[i].advance()) {
+            String record = shards[i].record;
+            out.write(record, shards[i].text, record.length() - shards[i].text);
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Слияние упорядоченных выводов первых count обработчиков на этапе stage:
+     * номер обработчика с наименьшей текущей строкой или -1, если этап у всех закончен
+     */
+    private int next(int count, int stage) {
+        int best = -1;
+        for (int i = 0; i < count; i++) {
+            if (shards[i].stage == stage && (best < 0 || shards[i].line < shards[best].line)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
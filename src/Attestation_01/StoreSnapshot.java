@@ -0,0 +1,264 @@
+package Attestation_01;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Компактный двоичный снимок состояния: каталог продуктов, покупатели с балансами и пакеты.
+ * Пакет записывается отрезками (номер продукта, сколько раз подряд), как в CompactBag.
+ * Продукты в пакетах ссылаются на номер в каталоге, а продукты, купленные до замены
+ * позиции каталога, записываются отдельным списком после каталога.
+ * Снимок пишется во временный файл и атомарно переименовывается, так что на диске
+ * всегда лежит либо старый, либо новый целый снимок. Целостность проверяется CRC32C.
+ *
+ * Формат (все числа big-endian):
+ * "PSNP", версия, поколение; продукты каталога; продукты вне каталога; покупатели; CRC32C.
+ * Продукт: название, цена, скидка, срок скидки (длина -1, если скидки нет),
+ * число окон расписания скидок и окна (начало, конец, скидка); окон нет в снимках версии 1.
+ * Покупатель: имя, баланс, вид пакета, число отрезков, отрезки (номер продукта, длина).
+ */
+final class StoreSnapshot {
+    static final String FILE = "snapshot.bin";
+    private static final int MAGIC = 0x50534E50; // "PSNP"
+    private static final int VERSION = 2;
+    private static final long CRC_CHUNK = 1 << 30; // Байтов в одном участке отображения при проверке CRC
+
+    private StoreSnapshot() {
+    }
+
+    /**
+     * Запись снимка. Вызывается, когда покупки не выполняются.
+     */
+    static void write(Path dir, long generation, CustomerIndex people, ProductCatalog catalog) throws IOException {
+        // Продукты пакетов, которых уже нет в каталоге в том же виде
+        Map<Product, Integer> refs = new IdentityHashMap<>();
+        List<Product> retired = new ArrayList<>();
+        for (int id = 0; id < people.size(); id++) {
+            ProductBag bag = people.person(id).bag();
+            for (int r = 0; r < bag.runCount(); r++) {
+                Product product = bag.runProduct(r);
+                if (!refs.containsKey(product)) {
+                    int ref = catalog.find(product.getName(), 0, product.getName().length());
+                    if (ref < 0 || !catalog.sameAs(ref, product)) {
+                        ref = catalog.size() + retired.size();
+                        retired.add(product);
+                    }
+                    refs.put(product, ref);
+                }
+            }
+        }
+
+        Path tmp = dir.resolve(FILE + ".tmp");
+        CRC32C crc = new CRC32C();
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+            out.writeInt(catalog.size());
+            for (int id = 0; id < catalog.size(); id++) {
+                writeProduct(out, catalog.name(id), catalog.basePrice(id), catalog.discount(id), catalog.validUntil(id),
+                        catalog.schedule(id));
+            }
+            out.writeInt(retired.size());
+            for (Product product : retired) {
+                DiscountProduct discounted = product instanceof DiscountProduct ? (DiscountProduct) product : null;
+                writeProduct(out, product.getName(), product.getBasePrice(),
+                        discounted == null ? 0 : discounted.getDiscount(),
+                        discounted == null ? null : discounted.getValidUntil(),
+                        discounted == null ? null : discounted.getSchedule());
+            }
+            out.writeInt(people.size());
+            for (int id = 0; id < people.size(); id++) {
+                Person person = people.person(id);
+                ProductBag bag = person.bag();
+                writeString(out, person.getName());
+                out.writeLong(person.getMoney());
+                out.writeBoolean(bag instanceof CompactBag);
+                out.writeInt(bag.runCount());
+                for (int r = 0; r < bag.runCount(); r++) {
+                    out.writeInt(refs.get(bag.runProduct(r)));
+                    out.writeInt(bag.runLength(r));
+                }
+            }
+            out.flush();
+            out.writeInt((int) crc.getValue()); // CRC32C всего, что записано выше
+            out.flush();
+            file.getFD().sync();
+        }
+        PurchaseStore.replace(tmp, dir.resolve(FILE));
+    }
+
+    /**
+     * Загрузка снимка в пустые индекс покупателей и каталог.
+     * Сначала по всему файлу проверяется CRC (участками отображения в память, так что размер
+     * снимка не ограничен одним буфером), затем снимок читается потоком.
+     * @return Поколение снимка или -1, если снимка нет
+     * @throws IOException Если снимок повреждён
+     */
+    static long read(Path dir, CustomerIndex people, ProductCatalog catalog) throws IOException {
+        Path path = dir.resolve(FILE);
+        if (!Files.exists(path)) {
+            return -1;
+        }
+        long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            if (size < 24) {
+                throw new IOException("Снимок повреждён: " + path);
+            }
+            CRC32C crc = new CRC32C();
+            for (long position = 0; position < size - 4; position += CRC_CHUNK) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CRC_CHUNK, size - 4 - position)));
+            }
+            int stored = channel.map(FileChannel.MapMode.READ_ONLY, size - 4, 4).getInt(); // Последние 4 байта - CRC
+            if ((int) crc.getValue() != stored) {
+                throw new IOException("Снимок повреждён: " + path);
+            }
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Снимок повреждён: " + path);
+            }
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Неизвестная версия снимка " + version + ": " + path);
+            }
+            long generation = in.readLong();
+            byte[] scratch = new byte[256];
+            Windows windows = new Windows();
+
+            int products = in.readInt();
+            for (int i = 0; i < products; i++) {
+                int length = in.readInt();
+                scratch = readBytes(in, length, scratch);
+                long price = in.readLong();
+                long discount = in.readLong();
+                String validUntil = readString(in);
+                if (windows.read(in, version) > 0) {
+                    catalog.put(scratch, 0, length, price, windows.starts, windows.ends, windows.amounts, windows.size);
+                } else {
+                    catalog.put(scratch, 0, length, price, discount, validUntil);
+                }
+            }
+            int retiredCount = in.readInt();
+            Product[] retired = new Product[retiredCount];
+            for (int i = 0; i < retiredCount; i++) {
+                String name = readString(in);
+                long price = in.readLong();
+                long discount = in.readLong();
+                String validUntil = readString(in);
+                retired[i] = windows.read(in, version) > 0
+                        ? new DiscountProduct(name, price, new DiscountSchedule(windows.starts, windows.ends, windows.amounts, 0, windows.size))
+                        : validUntil == null ? new Product(name, price) : new DiscountProduct(name, price, discount, validUntil);
+            }
+
+            int customers = in.readInt();
+            for (int i = 0; i < customers; i++) {
+                int length = in.readInt();
+                scratch = readBytes(in, length, scratch);
+                Person person = new Person(Bytes.decode(scratch, 0, length), in.readLong(), in.readBoolean());
+                ProductBag bag = person.bag();
+                for (int r = in.readInt(); r > 0; r--) {
+                    int ref = in.readInt();
+                    bag.addRun(ref < products ? catalog.product(ref) : retired[ref - products], in.readInt());
+                }
+                people.put(scratch, 0, length, person);
+            }
+            return generation;
+        } catch (EOFException | RuntimeException e) {
+            // Конец файла раньше времени или неверные данные при совпавшей CRC - тоже повреждение
+            throw new IOException("Снимок повреждён: " + path, e);
+        }
+    }
+
+    private static void writeProduct(DataOutputStream out, String name, long price, long discount, String validUntil,
+                                     DiscountSchedule schedule) throws IOException {
+        writeString(out, name);
+        out.writeLong(price);
+        out.writeLong(discount);
+        writeString(out, validUntil);
+        int n = schedule == null ? 0 : schedule.size();
+        out.writeInt(n);
+        for (int i = 0; i < n; i++) {
+            out.writeLong(schedule.start(i));
+            out.writeLong(schedule.end(i));
+            out.writeLong(schedule.amount(i));
+        }
+    }
+
+    /**
+     * Окна расписания очередного продукта при чтении (массивы переиспользуются)
+     */
+    private static final class Windows {
+        long[] starts = new long[4];
+        long[] ends = new long[4];
+        long[] amounts = new long[4];
+        int size;
+
+        /**
+         * @return Количество прочитанных окон (в снимке версии 1 окон нет)
+         */
+        int read(DataInputStream in, int version) throws IOException {
+            size = version < 2 ? 0 : in.readInt();
+            if (size > starts.length) {
+                starts = new long[size];
+                ends = new long[size];
+                amounts = new long[size];
+            }
+            for (int i = 0; i < size; i++) {
+                starts[i] = in.readLong();
+                ends[i] = in.readLong();
+                amounts[i] = in.readLong();
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Строка в UTF-8 с длиной впереди; null записывается длиной -1
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in, int length, byte[] scratch) throws IOException {
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        in.readFully(scratch, 0, length);
+        return scratch;
+    }
+}
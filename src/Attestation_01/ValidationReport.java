@@ -0,0 +1,76 @@
+package Attestation_01;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Компактный отчёт об ошибках массовой проверки: номер строки и код ошибки (см. RecordValidator).
+ * Хранит только два массива примитивов, поэтому миллион отклонённых строк не создаёт
+ * ни одного объекта исключения или строки сообщения.
+ */
+final class ValidationReport {
+    private final String section; // Название раздела ввода для отчёта
+    private long[] lines = new long[8];
+    private byte[] codes = new byte[8];
+    private int size;
+    private long accepted; // Принятых записей раздела
+
+    ValidationReport(String section) {
+        this.section = section;
+    }
+
+    void add(long lineNumber, int code) {
+        PurchaseMetrics.inputError(code);
+        if (size == lines.length) {
+            lines = Arrays.copyOf(lines, size * 2);
+            codes = Arrays.copyOf(codes, size * 2);
+        }
+        lines[size] = lineNumber;
+        codes[size] = (byte) code;
+        size++;
+    }
+
+    /**
+     * Учёт принятой записи (для решения, изменилось ли состояние)
+     */
+    void accept() {
+        accepted++;
+    }
+
+    long accepted() {
+        return accepted;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long line(int index) {
+        return lines[index];
+    }
+
+    int code(int index) {
+        return codes[index];
+    }
+
+    /**
+     * Запись отчёта построчно: "Раздел, строка N: сообщение"
+     */
+    void appendTo(Appendable out) throws IOException {
+        for (int i = 0; i < size; i++) {
+            appendLine(out, section, lines[i], codes[i]);
+        }
+    }
+
+    /**
+     * Одна строка отчёта без его хранения (для слияния отчётов нескольких процессов)
+     */
+    static void appendLine(Appendable out, String section, long lineNumber, int code) throws IOException {
+        out.append(section).append(", строка ").append(Long.toString(lineNumber)).append(": ")
+                .append(RecordValidator.message(code)).append('\n');
+    }
+}
@@ -0,0 +1,188 @@
+package Common;
+
+import java.io.PrintStream;
+
+/**
+ * Асинхронный вывод пачками. Строки дописываются в общий буфер под блокировкой (только копирование символов),
+ * а фоновый поток забирает заполненный буфер целиком и пишет его одной записью с одним flush
+ * (в кодировке самого PrintStream, как println).
+ * Буферов два: пока один выводится, в другой пишут. Если вывод не успевает, пишущие потоки ждут.
+ * Неполная пачка выводится не позже чем через FLUSH_MILLIS, по flush() и при завершении JVM.
+ * Если фоновый поток остановился (исключение при выводе или прерывание), строки выводятся
+ * синхронно в вызывающем потоке, как println, и пишущие потоки не ждут его вечно.
+ */
+public class AsyncOutputSink extends OutputSink {
+    public static final int DEFAULT_BATCH = 4096; // Строк в пачке
+    private static final long FLUSH_MILLIS = 20; // Наибольшая задержка строки из неполной пачки
+
+    private final PrintStream out;
+    private final int batchLines;
+    private final Thread writer;
+    private final Thread shutdownHook;
+
+    // Состояние под монитором this: буфер для записи, готовый к выводу и свободный
+    private StringBuilder filling = new StringBuilder(1 << 16);
+    private StringBuilder pending; // Передан фоновому потоку, null - нет
+    private StringBuilder spare = new StringBuilder(1 << 16); // null - выводится фоновым потоком или ждёт в pending
+    private int lines; // Строк в filling
+    private long handed; // Пачек передано фоновому потоку
+    private long written; // Пачек выведено
+    private boolean closing;
+    private boolean stopped; // Фоновый поток завершился: дальше вывод синхронный
+
+    /**
+     * @param out Куда выводить
+     * @param batchLines Строк в пачке
+     */
+    public AsyncOutputSink(PrintStream out, int batchLines) {
+        if (batchLines < 1) {
+            throw new IllegalArgumentException("Размер пачки должен быть положительным");
+        }
+        this.out = out;
+        this.batchLines = batchLines;
+        this.writer = new Thread(this::drain, "output-sink");
+        writer.setDaemon(true);
+        writer.start();
+        this.shutdownHook = new Thread(this::flush, "output-sink-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public synchronized void commit(CharSequence line) {
+        filling.append(line).append('\n');
+        if (++lines >= batchLines || stopped) {
+            handOff();
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (lines > 0) {
+            handOff();
+        }
+        long target = handed;
+        try {
+            while (written < target && !writerStopped()) {
+                wait(FLUSH_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerStopped()) {
+            writeDirect(); // Пачка, которую фоновый поток не успел забрать
+        }
+    }
+
+    /**
+     * Вывод накопленного и остановка фонового потока
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            flush();
+            closing = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException e) {
+            // JVM уже завершается: хук выполнится или уже выполнен
+        }
+    }
+
+    /**
+     * Передача заполняемого буфера фоновому потоку (вызывается под монитором).
+     * Если фоновый поток остановился, буферы выводятся сразу.
+     */
+    private void handOff() {
+        try {
+            while (spare == null && !writerStopped()) {
+                wait(FLUSH_MILLIS); // Оба буфера заняты: вывод не успевает
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return; // Строки остаются в буфере и уйдут со следующей пачкой
+        }
+        if (writerStopped()) {
+            writeDirect();
+            return;
+        }
+        pending = filling;
+        filling = spare;
+        spare = null;
+        lines = 0;
+        handed++;
+        notifyAll();
+    }
+
+    /**
+     * Фоновый поток остановлен (вызывается под монитором; проверка isAlive - на случай,
+     * если поток завершился, не дойдя до finally в drain)
+     */
+    private boolean writerStopped() {
+        return stopped || !writer.isAlive();
+    }
+
+    /**
+     * Синхронный вывод после остановки фонового потока (вызывается под монитором):
+     * сначала переданная ему, но не выведенная пачка, затем заполняемый буфер
+     */
+    private void writeDirect() {
+        if (pending != null) {
+            out.append(pending);
+            pending.setLength(0);
+            spare = pending;
+            pending = null;
+            written++;
+        }
+        out.append(filling);
+        out.flush();
+        filling.setLength(0);
+        lines = 0;
+    }
+
+    /**
+     * Фоновый поток: ожидание пачки (или FLUSH_MILLIS для неполной) и вывод.
+     * Исключение при выводе останавливает поток (и печатается обработчиком необработанных исключений);
+     * пачка, которую он выводил, может быть потеряна.
+     */
+    private void drain() {
+        try {
+            while (true) {
+                StringBuilder batch;
+                synchronized (this) {
+                    if (pending == null && lines == 0 && !closing) {
+                        wait(FLUSH_MILLIS);
+                    }
+                    if (pending == null && lines > 0) {
+                        handOff(); // Неполная пачка: свободный буфер есть, пока фоновый поток ничего не выводит
+                    }
+                    if (pending == null) {
+                        if (closing) return;
+                        continue;
+                    }
+                    batch = pending;
+                    pending = null;
+                }
+                out.append(batch); // Ошибки вывода PrintStream запоминает сам (checkError), как при println
+                out.flush();
+                batch.setLength(0);
+                synchronized (this) {
+                    spare = batch;
+                    written++;
+                    notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (this) {
+                stopped = true;
+                notifyAll();
+            }
+        }
+    }
+}
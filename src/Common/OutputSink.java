@@ -0,0 +1,100 @@
+package Common;
+
+/**
+ * Вывод сообщений программ (покупки, события телевизоров, отчёты) вместо System.out.println в каждом вызове.
+ * Строка собирается в переиспользуемый буфер текущего потока, без String.format и склейки строк:
+ * <pre>
+ *     OutputSink out = OutputSink.current();
+ *     if (out.enabled()) {
+ *         out.commit(out.line().append(name).append(" купил ").append(product.getName()));
+ *     }
+ * </pre>
+ * Реализации: {@link AsyncOutputSink} (пачками в фоновом потоке, по умолчанию в System.out)
+ * и {@link #silent()} (ничего не выводит, для бенчмарков).
+ * Строки выводятся в порядке вызовов commit, поэтому события одного покупателя или устройства
+ * идут в том же порядке, что и при println.
+ */
+public abstract class OutputSink implements AutoCloseable {
+    private static final ThreadLocal<StringBuilder> LINE = ThreadLocal.withInitial(() -> new StringBuilder(128));
+    private static final OutputSink SILENT = new OutputSink() {
+        @Override
+        public boolean enabled() {
+            return false;
+        }
+
+        @Override
+        public void commit(CharSequence line) {
+        }
+    };
+
+    private static volatile OutputSink current; // null - вывод по умолчанию ещё не создан
+
+    /**
+     * Общий вывод программы. По умолчанию - асинхронный вывод в System.out,
+     * который создаётся при первом обращении и выводит всё накопленное при завершении JVM.
+     */
+    public static OutputSink current() {
+        OutputSink sink = current;
+        return sink != null ? sink : createDefault();
+    }
+
+    private static synchronized OutputSink createDefault() {
+        if (current == null) {
+            current = new AsyncOutputSink(System.out, AsyncOutputSink.DEFAULT_BATCH);
+        }
+        return current;
+    }
+
+    /**
+     * Замена общего вывода (например, на silent() в бенчмарке). Накопленное в прежнем выводе выводится.
+     * @param sink Новый вывод, null - вывод по умолчанию
+     * @return Прежний вывод (null, если он ещё не создавался), чтобы его можно было вернуть
+     */
+    public static synchronized OutputSink install(OutputSink sink) {
+        OutputSink previous = current;
+        if (previous != null) {
+            previous.flush();
+        }
+        current = sink;
+        return previous;
+    }
+
+    /**
+     * Вывод, который всё отбрасывает
+     */
+    public static OutputSink silent() {
+        return SILENT;
+    }
+
+    /**
+     * @return false, если строки всё равно будут отброшены и их можно не собирать
+     */
+    public boolean enabled() {
+        return true;
+    }
+
+    /**
+     * Пустой буфер строки текущего потока. Действителен до следующего вызова line() в этом потоке.
+     */
+    public final StringBuilder line() {
+        StringBuilder line = LINE.get();
+        line.setLength(0);
+        return line;
+    }
+
+    /**
+     * Вывод строки (перевод строки добавляется). Строка копируется, буфер можно сразу использовать снова.
+     */
+    public abstract void commit(CharSequence line);
+
+    /**
+     * Ожидание, пока всё записанное до вызова будет выведено
+     */
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
@@ -1,13 +1,18 @@
+package HomeWork_4;
+
+import Common.OutputSink;
 import java.util.Scanner;
 
 public class App {
     public static void main(String[] args) { // Точка входа JVM
+        OutputSink out = OutputSink.current();//Общий вывод: события телевизоров и их описания идут по порядку
         // Создаём телевизор с фиксированными параметрами
         Televizor tv1 = new Televizor("Sony", "Bravia", 55);// Параметры для тв1 по умолчанию
         tv1.turnOn(); // Телевизор включен
         tv1.changeChannel(5);//Смена канала
         tv1.increaseVolume();//Изменени е громкости
-        System.out.println(tv1 + "\n");//Вывод на новую строку с переносом \n
+        out.commit(out.line().append(tv1).append('\n'));//Вывод на новую строку с переносом \n
+        out.flush();//Всё накопленное выводится до вопросов с клавиатуры
 
         // Создаём телевизор с параметрами с клавиатуры
         Scanner scanner = new Scanner(System.in);//Создаём сканер из терминала
@@ -22,13 +27,14 @@ public class App {
         Televizor tv2 = new Televizor(brand, model, size);// Параметры для тв2 для ручного ввода параметров
         tv2.turnOn();
         tv2.changeChannel(10);
-        System.out.println(tv2 + "\n");
+        out.commit(out.line().append(tv2).append('\n'));
 
         // Создаём телевизор тв3 со случайными параметрами
         Televizor tv3 = Televizor.createRandomTelevizor();// Обьявление случайных параметров телевизора
         tv3.turnOn();
         for (int i = 0; i < 3; i++) tv3.increaseVolume();//цикл случайного выбора параметров громкости от 50 до 54
-        System.out.println(tv3 + "\n");//вывод в терминал
+        out.commit(out.line().append(tv3).append('\n'));//вывод в терминал
+        out.flush();
 
         scanner.close();//Закрываем сканирование
     }
@@ -0,0 +1,214 @@
+package HomeWork_4;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронная обработка команд пульта для многих телевизоров.
+ * Каждый телевизор закреплён за одной полосой (потоком с ограниченной очередью), поэтому его команды
+ * выполняются строго по порядку и только одним потоком, а Televizor не нуждается в синхронизации.
+ * Полная очередь останавливает отправителя (обратное давление). Перед выполнением пачки
+ * подряд идущие команды одного телевизора объединяются: несколько изменений громкости
+ * в одну сторону становятся одним, из нескольких переключений канала остаётся последнее.
+ * Java 17: виртуальных потоков нет, поэтому используются обычные потоки-полосы.
+ */
+public class RemoteControlPipeline implements AutoCloseable {
+    private static final int TURN_ON = 0;
+    private static final int TURN_OFF = 1;
+    private static final int CHANNEL = 2;
+    private static final int VOLUME = 3;
+    private static final int STOP = 4;
+    private static final int BATCH = 256; // Команд, которые полоса забирает из очереди за раз
+
+    private final Lane[] lanes;
+    private final AtomicLong coalesced = new AtomicLong(); // Команд, поглощённых объединением
+
+    /**
+     * Команда пульта для одного телевизора
+     */
+    private static final class Command {
+        final Televizor tv;
+        final int kind;
+        int value; // Канал или изменение громкости
+
+        Command(Televizor tv, int kind, int value) {
+            this.tv = tv;
+            this.kind = kind;
+            this.value = value;
+        }
+
+        /**
+         * Поглощение следующей команды того же телевизора, если результат не меняется
+         */
+        boolean absorb(Command next) {
+            if (kind != next.kind) {
+                return false;
+            }
+            switch (kind) {
+                case TURN_ON:
+                case TURN_OFF:
+                    return true;
+                case CHANNEL:
+                    value = next.value; // Неверные каналы отбрасываются ещё при отправке
+                    return true;
+                case VOLUME:
+                    // В одну сторону ограничение 0..100 даёт тот же результат; +5 и -5 у границы - нет
+                    if ((value > 0) != (next.value > 0)) {
+                        return false;
+                    }
+                    long sum = (long) value + next.value;
+                    if (sum != (int) sum) {
+                        return false;
+                    }
+                    value = (int) sum;
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        void run() {
+            switch (kind) {
+                case TURN_ON:
+                    tv.turnOn();
+                    break;
+                case TURN_OFF:
+                    tv.turnOff();
+                    break;
+                case CHANNEL:
+                    tv.changeChannel(value);
+                    break;
+                case VOLUME:
+                    tv.changeVolume(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Полоса: поток, который по порядку выполняет команды своей очереди
+     */
+    private final class Lane extends Thread {
+        private final BlockingQueue<Command> queue;
+
+        Lane(int index, int capacity) {
+            super("remote-control-" + index);
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Command> taken = new ArrayList<>(BATCH);
+            List<Command> batch = new ArrayList<>(BATCH);
+            Map<Televizor, Command> last = new IdentityHashMap<>(); // Последняя команда телевизора в пачке
+            try {
+                while (true) {
+                    taken.add(queue.take());
+                    queue.drainTo(taken, BATCH - 1);
+                    boolean stop = false;
+                    for (Command command : taken) {
+                        if (command.kind == STOP) {
+                            stop = true;
+                            continue;
+                        }
+                        Command previous = last.get(command.tv);
+                        if (previous != null && previous.absorb(command)) {
+                            coalesced.incrementAndGet();
+                        } else {
+                            batch.add(command);
+                            last.put(command.tv, command);
+                        }
+                    }
+                    for (Command command : batch) {
+                        command.run();
+                    }
+                    taken.clear();
+                    batch.clear();
+                    last.clear();
+                    if (stop) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @param lanes Количество полос (потоков)
+     * @param capacity Размер очереди каждой полосы
+     */
+    public RemoteControlPipeline(int lanes, int capacity) {
+        if (lanes < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Количество полос и размер очереди должны быть положительными");
+        }
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane(i, capacity);
+            this.lanes[i].start();
+        }
+    }
+
+    public void turnOn(Televizor tv) throws InterruptedException {
+        submit(new Command(tv, TURN_ON, 0));
+    }
+
+    public void turnOff(Televizor tv) throws InterruptedException {
+        submit(new Command(tv, TURN_OFF, 0));
+    }
+
+    public void changeChannel(Televizor tv, int channel) throws InterruptedException {
+        if (channel > 0) { // Неверный канал телевизор всё равно проигнорирует
+            submit(new Command(tv, CHANNEL, channel));
+        }
+    }
+
+    public void increaseVolume(Televizor tv) throws InterruptedException {
+        submit(new Command(tv, VOLUME, 1));
+    }
+
+    public void decreaseVolume(Televizor tv) throws InterruptedException {
+        submit(new Command(tv, VOLUME, -1));
+    }
+
+    /**
+     * Отправка команды в полосу телевизора; ждёт, если очередь полосы заполнена
+     */
+    private void submit(Command command) throws InterruptedException {
+        int hash = System.identityHashCode(command.tv);
+        lanes[Math.floorMod(hash ^ (hash >>> 16), lanes.length)].queue.put(command);
+    }
+
+    /**
+     * @return Сколько команд было поглощено объединением
+     */
+    public long coalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Выполнение всех отправленных команд и остановка полос
+     */
+    @Override
+    public void close() {
+        try {
+            for (Lane lane : lanes) {
+                lane.queue.put(new Command(null, STOP, 0));
+            }
+            for (Lane lane : lanes) {
+                lane.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,4 +1,7 @@
-import java.util.Random;//Добавление утилиты Random
+package HomeWork_4;
+
+import Common.OutputSink;
+import java.util.concurrent.ThreadLocalRandom;//Добавление утилиты случайных чисел потока
 
 public class Televizor {//Обявляем класс Televizor
 
@@ -9,6 +12,8 @@ public class Televizor {//Обявляем класс Televizor
     private boolean isOn;//Состояние тв, включен выключен
     private int currentChannel;//Текущий канал
     private int volume;//Громкость
+    private TelevizorEventLog eventLog;//Журнал событий, null - общий вывод OutputSink
+    private static final int NO_VALUE = Integer.MIN_VALUE;//Событие без числа
 
     // Конструктор с тремя параметрами Брэнд, Модель, Диагональ
     public Televizor(String brand, String model, int screenSize) {//
@@ -45,47 +50,72 @@ public class Televizor {//Обявляем класс Televizor
         return volume;
     }
 
+    public void setEventLog(TelevizorEventLog eventLog) {//События пишутся в журнал вместо общего вывода
+        this.eventLog = eventLog;
+    }
+
+    private void report(String message) {//Вывод события в журнал или в общий вывод
+        report(message, NO_VALUE);
+    }
+
+    private void report(String message, int value) {//Сообщение и число собираются в буфер строки вывода без склейки строк
+        OutputSink out = eventLog != null ? eventLog : OutputSink.current();
+        if (!out.enabled()) return;
+        StringBuilder line = out.line();
+        if (eventLog != null) line.append(brand).append(' ').append(model).append(": ");//Подпись устройства в журнале
+        line.append(message);
+        if (value != NO_VALUE) line.append(value);
+        out.commit(line);
+    }
+
     // Методы
     public void turnOn() {//Метод включения тв
         isOn = true;
-        System.out.println("Телевизор включен");
+        report("Телевизор включен");
     }
 
     public void turnOff() {//Метод выключения тв
         isOn = false;
-        System.out.println("Телевизор выключен");
+        report("Телевизор выключен");
     }
 
     public void changeChannel(int channel) {//Метод для изменения/переключения канала
         if (isOn && channel > 0) {//Если тв включен и канал больше 0, то можно переключить канал
             currentChannel = channel;
-            System.out.println("Канал изменён на: " + channel);
+            report("Канал изменён на: ", channel);
         }
     }
 
     public void increaseVolume() {//Метод для регулировки звука
         if (isOn && volume < 100) {//если тв включен и громкость меньше 100, можно прибавить звук
             volume++;
-            System.out.println("Громкость: " + volume);
+            report("Громкость: ", volume);
         }
     }
 
     public void decreaseVolume() {//если тв включен и громкость больше 0, можно убавить звук
         if (isOn && volume > 0) {
             volume--;
-            System.out.println("Громкость: " + volume);
+            report("Громкость: ", volume);
+        }
+    }
+
+    public void changeVolume(int delta) {//Изменение громкости сразу на delta, как delta вызовов increaseVolume/decreaseVolume
+        int updated = (int) Math.max(0, Math.min(100, (long) volume + delta));
+        if (isOn && updated != volume) {
+            volume = updated;
+            report("Громкость: ", volume);
         }
     }
 
     // Статический метод для создания телевизора со случайными параметрами
+    // Для воспроизводимых наборов и больших парков см. TelevizorGenerator
     public static Televizor createRandomTelevizor() {
-        Random rand = new Random();
-        String[] brands = {"Samsung", "LG", "Sony", "Philips"};
-        String[] models = {"UltraHD", "SmartTV", "Curved", "OLED"};
+        ThreadLocalRandom rand = ThreadLocalRandom.current();//Общий генератор потока, без new Random() на каждый вызов
         return new Televizor(
-                brands[rand.nextInt(brands.length)],
-                models[rand.nextInt(models.length)],
-                30 + rand.nextInt(41) //Задаём диапазон 30-70 дюймов для случайного выбора
+                TelevizorGenerator.BRANDS[rand.nextInt(TelevizorGenerator.BRANDS.length)],
+                TelevizorGenerator.MODELS[rand.nextInt(TelevizorGenerator.MODELS.length)],
+                TelevizorGenerator.MIN_SCREEN_SIZE + rand.nextInt(TelevizorGenerator.SCREEN_SIZES) //Задаём диапазон 30-70 дюймов для случайного выбора
         );
     }
 
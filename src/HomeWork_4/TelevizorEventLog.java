@@ -0,0 +1,19 @@
+package HomeWork_4;
+
+import Common.AsyncOutputSink;
+import java.io.PrintStream;
+
+/**
+ * Журнал событий телевизоров: асинхронный вывод пачками (см. AsyncOutputSink),
+ * в котором каждое событие подписано устройством: "Бренд Модель: сообщение".
+ * Без журнала события идут в общий вывод OutputSink.current() без подписи.
+ */
+public class TelevizorEventLog extends AsyncOutputSink {
+    /**
+     * @param out Куда выводить события
+     * @param capacity Событий в одной пачке
+     */
+    public TelevizorEventLog(PrintStream out, int capacity) {
+        super(out, capacity);
+    }
+}
@@ -0,0 +1,388 @@
+package HomeWork_4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Парк телевизоров в параллельных массивах примитивов (вместо объекта Televizor на каждое устройство).
+ * Состояние включения хранится битами, канал - int, громкость - byte, бренд и модель - номерами
+ * в общих таблицах названий. Групповые команды выполняются параллельно по блокам устройств
+ * и не печатают ничего в консоль. Правила те же, что у Televizor: канал больше 0,
+ * громкость от 0 до 100, у выключенного телевизора ничего не меняется.
+ * Диагональ хранится байтом, поэтому допускается от 0 до 255 дюймов (другие значения отклоняются).
+ * Команды к одному парку вызываются из одного потока (параллельность - внутри команды).
+ */
+public class TelevizorFleet {
+    private static final int BLOCK = 1 << 16; // Устройств в блоке параллельной обработки (кратно 64)
+    static final int MAX_VOLUME = 100;
+    static final int DEFAULT_CHANNEL = 1;
+    static final int DEFAULT_VOLUME = 50;
+    static final int MAX_SCREEN_SIZE = 255; // Наибольшая диагональ, которая помещается в byte без знака
+
+    private int size; // Количество устройств
+    private long[] on = new long[1]; // Биты включения, по 64 устройства на слово
+    private int[] channels = new int[64]; // Текущий канал
+    private byte[] volumes = new byte[64]; // Громкость 0..100
+    private short[] brands = new short[64]; // Номер бренда в brandNames
+    private short[] models = new short[64]; // Номер модели в modelNames
+    private byte[] screenSizes = new byte[64]; // Диагональ в дюймах
+
+    private final List<String> brandNames = new ArrayList<>();
+    private final Map<String, Integer> brandIds = new HashMap<>();
+    private final List<String> modelNames = new ArrayList<>();
+    private final Map<String, Integer> modelIds = new HashMap<>();
+
+    /**
+     * Блок устройств [from, to) одной параллельной задачи
+     */
+    private interface BlockCommand {
+        /**
+         * @return Количество изменённых устройств
+         */
+        long apply(int from, int to);
+    }
+
+    public TelevizorFleet() {
+    }
+
+    /**
+     * @param capacity Ожидаемое количество устройств (массивы не придётся расширять)
+     */
+    public TelevizorFleet(int capacity) {
+        ensureCapacity(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Добавление выключенного телевизора с каналом 1 и громкостью 50, как в конструкторе Televizor
+     * @return Номер устройства
+     * @throws IllegalArgumentException Если диагональ вне 0..255
+     */
+    public int add(String brand, String model, int screenSize) {
+        return add(brandId(brand, true), modelId(model, true), screenSize);
+    }
+
+    /**
+     * То же, что {@link #add(String, String, int)}, по номерам из таблиц брендов и моделей
+     * @return Номер устройства
+     */
+    int add(int brand, int model, int screenSize) {
+        checkScreenSize(screenSize);
+        ensureCapacity(size + 1);
+        int id = size++;
+        brands[id] = (short) brand;
+        models[id] = (short) model;
+        screenSizes[id] = (byte) screenSize;
+        channels[id] = DEFAULT_CHANNEL;
+        volumes[id] = DEFAULT_VOLUME;
+        return id;
+    }
+
+    /**
+     * Добавление count выключенных телевизоров без бренда и модели (номер 0 в таблицах);
+     * поля заполняются затем через {@link #set}, в том числе из разных потоков
+     * @return Номер первого добавленного устройства
+     */
+    int allocate(int count) {
+        ensureCapacity(size + count);
+        int first = size;
+        size += count;
+        Arrays.fill(channels, first, size, DEFAULT_CHANNEL);
+        Arrays.fill(volumes, first, size, (byte) DEFAULT_VOLUME);
+        return first;
+    }
+
+    /**
+     * Бренд, модель и диагональ устройства (по номерам из таблиц брендов и моделей)
+     */
+    void set(int id, int brand, int model, int screenSize) {
+        checkScreenSize(screenSize);
+        brands[id] = (short) brand;
+        models[id] = (short) model;
+        screenSizes[id] = (byte) screenSize;
+    }
+
+    private static void checkScreenSize(int screenSize) {
+        if (screenSize < 0 || screenSize > MAX_SCREEN_SIZE) {
+            throw new IllegalArgumentException("Диагональ должна быть от 0 до " + MAX_SCREEN_SIZE + ": " + screenSize);
+        }
+    }
+
+    /**
+     * Номер бренда в общей таблице
+     * @param create Добавить бренд, если его ещё нет
+     * @return Номер или -1, если бренда нет и create == false
+     */
+    int brandId(String brand, boolean create) {
+        return id(brand, brandNames, brandIds, create);
+    }
+
+    int modelId(String model, boolean create) {
+        return id(model, modelNames, modelIds, create);
+    }
+
+    private static int id(String name, List<String> names, Map<String, Integer> ids, boolean create) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (!create) {
+            return -1;
+        }
+        if (names.size() > Short.MAX_VALUE) {
+            throw new IllegalStateException("Слишком много разных названий: " + name);
+        }
+        ids.put(name, names.size());
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    // Групповые команды. Каждая возвращает количество устройств, состояние которых изменилось.
+
+    /**
+     * Включение устройств [from, to)
+     */
+    public long turnOn(int from, int to) {
+        return setPower(from, to, -1, true);
+    }
+
+    /**
+     * Выключение устройств [from, to)
+     */
+    public long turnOff(int from, int to) {
+        return setPower(from, to, -1, false);
+    }
+
+    /**
+     * Включение всех телевизоров бренда
+     */
+    public long turnOnBrand(String brand) {
+        int id = brandId(brand, false);
+        return id < 0 ? 0 : setPower(0, size, id, true);
+    }
+
+    /**
+     * Выключение всех телевизоров бренда
+     */
+    public long turnOffBrand(String brand) {
+        int id = brandId(brand, false);
+        return id < 0 ? 0 : setPower(0, size, id, false);
+    }
+
+    /**
+     * Переключение канала на включенных устройствах [from, to); канал должен быть больше 0
+     */
+    public long changeChannel(int from, int to, int channel) {
+        checkRange(from, to);
+        if (channel <= 0) {
+            return 0; // Как Televizor.changeChannel: неверный канал не меняет ничего
+        }
+        return parallel(from, to, (f, t) -> {
+            long changed = 0;
+            for (int i = f; i < t; i++) {
+                if (isOn(i) && channels[i] != channel) {
+                    channels[i] = channel;
+                    changed++;
+                }
+            }
+            return changed;
+        });
+    }
+
+    /**
+     * Изменение громкости на delta у включенных устройств [from, to) с ограничением 0..100
+     * (то же, что delta вызовов increaseVolume или decreaseVolume)
+     */
+    public long changeVolume(int from, int to, int delta) {
+        checkRange(from, to);
+        if (delta == 0) {
+            return 0;
+        }
+        return parallel(from, to, (f, t) -> {
+            long changed = 0;
+            for (int i = f; i < t; i++) {
+                if (isOn(i)) {
+                    int volume = volumes[i];
+                    int updated = (int) Math.max(0, Math.min(MAX_VOLUME, (long) volume + delta));
+                    if (updated != volume) {
+                        volumes[i] = (byte) updated;
+                        changed++;
+                    }
+                }
+            }
+            return changed;
+        });
+    }
+
+    /**
+     * Количество включенных устройств
+     */
+    public long countOn() {
+        long count = 0;
+        for (long word : on) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Включение или выключение устройств [from, to), при brand >= 0 - только этого бренда.
+     * Блоки выровнены по 64 устройства, поэтому каждое слово битов меняет только одна задача.
+     */
+    private long setPower(int from, int to, int brand, boolean value) {
+        checkRange(from, to);
+        return parallel(from, to, (f, t) -> {
+            long changed = 0;
+            for (int i = f; i < t; ) {
+                int word = i >>> 6;
+                int end = Math.min(t, (word + 1) << 6);
+                long mask = 0;
+                for (; i < end; i++) {
+                    if (brand < 0 || brands[i] == brand) {
+                        mask |= 1L << i;
+                    }
+                }
+                long old = on[word];
+                long updated = value ? old | mask : old & ~mask;
+                changed += Long.bitCount(old ^ updated);
+                on[word] = updated;
+            }
+            return changed;
+        });
+    }
+
+    /**
+     * Параллельное выполнение команды по блокам [from, to), границы блоков кратны BLOCK
+     */
+    private static long parallel(int from, int to, BlockCommand command) {
+        if (from >= to) {
+            return 0;
+        }
+        int first = from / BLOCK;
+        int last = (to - 1) / BLOCK;
+        if (first == last) {
+            return command.apply(from, to);
+        }
+        return IntStream.rangeClosed(first, last).parallel()
+                .mapToLong(block -> command.apply(Math.max(from, block * BLOCK), (int) Math.min(to, (long) (block + 1) * BLOCK)))
+                .sum();
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Неверный диапазон устройств: " + from + ".." + to + " из " + size);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= channels.length) {
+            return;
+        }
+        int n = Math.max(capacity, channels.length * 2);
+        on = Arrays.copyOf(on, (n + 63) >>> 6);
+        channels = Arrays.copyOf(channels, n);
+        volumes = Arrays.copyOf(volumes, n);
+        brands = Arrays.copyOf(brands, n);
+        models = Arrays.copyOf(models, n);
+        screenSizes = Arrays.copyOf(screenSizes, n);
+    }
+
+    // Доступ к одному устройству
+
+    boolean isOn(int id) {
+        return (on[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Представление одного устройства с методами и правилами Televizor, без вывода в консоль
+     */
+    public View view(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Нет устройства с номером " + id);
+        }
+        return new View(id);
+    }
+
+    /**
+     * Телевизор парка: читает и меняет общие массивы, объект хранит только номер устройства
+     */
+    public final class View {
+        private final int id;
+
+        private View(int id) {
+            this.id = id;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getBrand() {
+            return brandNames.get(brands[id]);
+        }
+
+        public String getModel() {
+            return modelNames.get(models[id]);
+        }
+
+        public int getScreenSize() {
+            return screenSizes[id] & 0xFF;
+        }
+
+        public boolean isOn() {
+            return TelevizorFleet.this.isOn(id);
+        }
+
+        public int getCurrentChannel() {
+            return channels[id];
+        }
+
+        public int getVolume() {
+            return volumes[id];
+        }
+
+        public void turnOn() {
+            on[id >>> 6] |= 1L << id;
+        }
+
+        public void turnOff() {
+            on[id >>> 6] &= ~(1L << id);
+        }
+
+        public void changeChannel(int channel) {
+            if (isOn() && channel > 0) {//Если тв включен и канал больше 0, то можно переключить канал
+                channels[id] = channel;
+            }
+        }
+
+        public void increaseVolume() {
+            if (isOn() && volumes[id] < MAX_VOLUME) {
+                volumes[id]++;
+            }
+        }
+
+        public void decreaseVolume() {
+            if (isOn() && volumes[id] > 0) {
+                volumes[id]--;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "Телевизор: %s %s, %d\"\nСостояние: %s\nКанал: %d\nГромкость: %d",
+                    getBrand(), getModel(), getScreenSize(),
+                    isOn() ? "ВКЛ" : "ВЫКЛ",
+                    getCurrentChannel(),
+                    getVolume()
+            );
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package HomeWork_4;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Воспроизводимая генерация случайных телевизоров по зерну.
+ * Устройства делятся на куски фиксированного размера, и каждый кусок получает свой
+ * SplittableRandom, отщеплённый от корневого в порядке номеров кусков. Поэтому результат
+ * зависит только от зерна и количества, но не от числа потоков, которые его считают.
+ */
+public class TelevizorGenerator {
+    static final String[] BRANDS = {"Samsung", "LG", "Sony", "Philips"}; // Общие таблицы для всех генераций
+    static final String[] MODELS = {"UltraHD", "SmartTV", "Curved", "OLED"};
+    static final int MIN_SCREEN_SIZE = 30;
+    static final int SCREEN_SIZES = 41; // Диагонали 30-70 дюймов
+
+    private static final int CHUNK = 1 << 14; // Устройств на один поток случайных чисел
+
+    private final long seed;
+
+    public TelevizorGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Телевизоры в виде отдельных объектов
+     */
+    public Televizor[] generate(int count) {
+        Televizor[] result = new Televizor[count];
+        SplittableRandom[] streams = streams(count);
+        IntStream.range(0, streams.length).parallel().forEach(chunk -> {
+            SplittableRandom random = streams[chunk];
+            int end = (int) Math.min(count, (long) chunk * CHUNK + CHUNK); // Без переполнения у последнего куска
+            for (int i = chunk * CHUNK; i < end; i++) {
+                result[i] = new Televizor(BRANDS[random.nextInt(BRANDS.length)],
+                        MODELS[random.nextInt(MODELS.length)],
+                        MIN_SCREEN_SIZE + random.nextInt(SCREEN_SIZES));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Те же телевизоры, что и {@link #generate(int)}, но сразу в массивы парка, без объектов
+     * @return Номер первого добавленного устройства
+     */
+    public int fill(TelevizorFleet fleet, int count) {
+        int[] brandIds = new int[BRANDS.length];
+        for (int i = 0; i < BRANDS.length; i++) {
+            brandIds[i] = fleet.brandId(BRANDS[i], true);
+        }
+        int[] modelIds = new int[MODELS.length];
+        for (int i = 0; i < MODELS.length; i++) {
+            modelIds[i] = fleet.modelId(MODELS[i], true);
+        }
+        int first = fleet.allocate(count);
+        SplittableRandom[] streams = streams(count);
+        IntStream.range(0, streams.length).parallel().forEach(chunk -> {
+            SplittableRandom random = streams[chunk];
+            int end = (int) Math.min(count, (long) chunk * CHUNK + CHUNK); // Без переполнения у последнего куска
+            for (int i = chunk * CHUNK; i < end; i++) {
+                fleet.set(first + i, brandIds[random.nextInt(BRANDS.length)],
+                        modelIds[random.nextInt(MODELS.length)],
+                        MIN_SCREEN_SIZE + random.nextInt(SCREEN_SIZES));
+            }
+        });
+        return first;
+    }
+
+    /**
+     * Потоки случайных чисел для кусков; отщепляются последовательно, поэтому детерминированы
+     */
+    private SplittableRandom[] streams(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Количество телевизоров не может быть отрицательным");
+        }
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[(int) (((long) count + CHUNK - 1) / CHUNK)];
+        for (int i = 0; i < streams.length; i++) {
+            streams[i] = root.split();
+        }
+        return streams;
+    }
+}
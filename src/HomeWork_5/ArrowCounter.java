@@ -0,0 +1,144 @@
+package HomeWork_5;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Подсчёт стрел '>>-->' и '<--<<' в файле без создания строк.
+ * Файл отображается в память (MappedByteBuffer), байты сравниваются напрямую,
+ * а работа делится на куски, которые считаются параллельно в ForkJoinPool.
+ * Как и Task2 со Scanner.nextLine(), учитывается только первая строка файла.
+ */
+final class ArrowCounter {
+    private static final int ARROW = 5; // Длина стрелы
+    private static final long RIGHT = pack(">>-->"); // Стрела вправо, упакованная в 5 младших байтов long
+    private static final long LEFT = pack("<--<<"); // Стрела влево
+    private static final long WINDOW_MASK = (1L << (8 * ARROW)) - 1;
+
+    private static final long SEGMENT = 1L << 30; // Размер одного отображения (MappedByteBuffer не больше 2 ГБ)
+    private static final int LEAF = 1 << 20; // Кусок, который считается одной задачей без деления
+
+    private ArrowCounter() {
+    }
+
+    /**
+     * Количество стрел в первой строке файла
+     * @param file Файл с последовательностью (ожидается UTF-8)
+     * @param pool Пул, в котором считаются куски
+     */
+    static long countFile(Path file, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Result total = new Result(-1, 0);
+            // Отображения идут с перекрытием в ARROW - 1 байт, чтобы стрела на стыке была видна целиком
+            for (long start = 0; start < size && total.lineEnd < 0; start += SEGMENT) {
+                long length = Math.min(SEGMENT + ARROW - 1, size - start);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                int end = (int) Math.min(SEGMENT, length); // Позиции начала стрел этого отображения
+                Result segment = pool.invoke(new Chunk(buffer, 0, end, (int) length));
+                total = total.then(segment.lineEnd < 0 ? segment : new Result(start + segment.lineEnd, segment.count));
+            }
+            return total.count;
+        }
+    }
+
+    /**
+     * Итог куска: позиция первого конца строки (или -1) и число стрел, которые начинаются до него
+     */
+    private static final class Result {
+        final long lineEnd;
+        final long count;
+
+        Result(long lineEnd, long count) {
+            this.lineEnd = lineEnd;
+            this.count = count;
+        }
+
+        /**
+         * Объединение с куском, который идёт сразу за этим: после конца строки ничего не считается
+         */
+        Result then(Result next) {
+            return lineEnd >= 0 ? this : new Result(next.lineEnd, count + next.count);
+        }
+    }
+
+    /**
+     * Задача подсчёта стрел, начинающихся в позициях [from, to) отображения.
+     * Стрела может заканчиваться за to (до limit), поэтому стыки кусков не теряют совпадений.
+     */
+    private static final class Chunk extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final MappedByteBuffer buffer;
+        private final int from;
+        private final int to;
+        private final int limit; // Конец доступных байтов отображения
+
+        Chunk(MappedByteBuffer buffer, int from, int to, int limit) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.limit = limit;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from <= LEAF) {
+                return scan();
+            }
+            int middle = (from + to) >>> 1;
+            Chunk right = new Chunk(buffer, middle, to, limit);
+            right.fork();
+            Result left = new Chunk(buffer, from, middle, limit).compute();
+            return left.then(right.join());
+        }
+
+        private Result scan() {
+            long window = 0; // Последние 5 байтов
+            long count = 0;
+            int end = Math.min(to + ARROW - 1, limit);
+            for (int i = from; i < end; i++) {
+                int b = buffer.get(i) & 0xFF;
+                if (i < to && isLineEnd(b, i)) {
+                    // Стрелы не содержат символов конца строки, так что все найденные стрелы лежат до него
+                    return new Result(i, count);
+                }
+                window = ((window << 8) | b) & WINDOW_MASK;
+                if ((window == RIGHT || window == LEFT) && i - (ARROW - 1) >= from) {
+                    count++;
+                }
+            }
+            return new Result(-1, count);
+        }
+
+        /**
+         * Конец строки в смысле Scanner.nextLine(): \n, \r, U+0085, U+2028, U+2029 (в UTF-8)
+         */
+        private boolean isLineEnd(int b, int i) {
+            if (b == '\n' || b == '\r') {
+                return true;
+            }
+            if (b == 0xC2) {
+                return i + 1 < limit && (buffer.get(i + 1) & 0xFF) == 0x85;
+            }
+            if (b == 0xE2) {
+                return i + 2 < limit && (buffer.get(i + 1) & 0xFF) == 0x80
+                        && ((buffer.get(i + 2) & 0xFF) == 0xA8 || (buffer.get(i + 2) & 0xFF) == 0xA9);
+            }
+            return false;
+        }
+    }
+
+    private static long pack(String arrow) {
+        long packed = 0;
+        for (int i = 0; i < arrow.length(); i++) {
+            packed = (packed << 8) | arrow.charAt(i);
+        }
+        return packed;
+    }
+}
@@ -0,0 +1,78 @@
+package HomeWork_5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Замена каждого символа соседом по замкнутому ряду клавиатуры через таблицу на 256 байтов.
+ * Рядов (колец) может быть несколько, например три ряда клавиатуры или другая раскладка;
+ * символы вне колец не меняются. Кольца задаются однобайтовыми символами (ASCII),
+ * поэтому текст в UTF-8 обрабатывается побайтово без декодирования.
+ */
+final class KeyboardRing {
+    static final String QWERTY = "qwertyuiopasdfghjklzxcvbnm"; // Кольцо из Task1
+
+    private final byte[] table = new byte[256]; // Байт -> байт соседа
+
+    /**
+     * @param right true - сосед справа (обратное преобразование), false - слева, как в Task1
+     * @param rings Кольца символов; символ может входить только в одно кольцо
+     * @throws IllegalArgumentException Если кольцо пустое, содержит не ASCII или повторяющийся символ
+     */
+    KeyboardRing(boolean right, String... rings) {
+        for (int b = 0; b < 256; b++) {
+            table[b] = (byte) b;
+        }
+        boolean[] used = new boolean[128];
+        for (String ring : rings) {
+            if (ring.isEmpty()) {
+                throw new IllegalArgumentException("Кольцо не может быть пустым");
+            }
+            int n = ring.length();
+            for (int i = 0; i < n; i++) {
+                char c = ring.charAt(i);
+                if (c >= 128) {
+                    throw new IllegalArgumentException("Кольцо может содержать только символы ASCII: " + ring);
+                }
+                if (used[c]) {
+                    throw new IllegalArgumentException("Символ '" + c + "' встречается в кольцах дважды");
+                }
+                used[c] = true;
+                // Замкнутость кольца: сосед слева от первого символа - последний, и наоборот
+                table[c] = (byte) ring.charAt(right ? (i + 1) % n : (i - 1 + n) % n);
+            }
+        }
+    }
+
+    /**
+     * Преобразование байтов массива на месте
+     */
+    void apply(byte[] bytes, int from, int to) {
+        byte[] t = table;
+        for (int i = from; i < to; i++) {
+            bytes[i] = t[bytes[i] & 0xFF];
+        }
+    }
+
+    /**
+     * Преобразование всего потока через один буфер: чтение, замена на месте, запись
+     * @return Количество обработанных байтов
+     */
+    long transform(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        byte[] bytes = buffer.array();
+        long total = 0;
+        while (in.read(buffer) >= 0) {
+            buffer.flip();
+            apply(bytes, 0, buffer.limit());
+            total += buffer.limit();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,167 @@
+package HomeWork_5;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Потоковый поиск набора образцов (автомат Ахо-Корасик, развёрнутый в полную таблицу переходов).
+ * Вход подаётся кусками ByteBuffer любого размера, совпадения на стыках кусков не теряются,
+ * а память зависит только от образцов, но не от длины входа: один номер состояния и счётчики.
+ * Перекрывающиеся совпадения считаются все, как в Task2.
+ */
+final class StreamMatcher {
+    private final int[] next; // Переход: next[state * 256 + байт]
+    private final int[] outputStart; // Образцы, заканчивающиеся в состоянии: outputs[outputStart[s]..outputStart[s + 1])
+    private final int[] outputs;
+    private final long[] counts; // Совпадений каждого образца
+    private long total; // Совпадений всех образцов
+    private int state; // Текущее состояние автомата
+
+    /**
+     * @param patterns Образцы (в UTF-8), не пустые
+     */
+    StreamMatcher(String... patterns) {
+        this(encode(patterns));
+    }
+
+    /**
+     * @param patterns Образцы в виде байтов, не пустые
+     * @throws IllegalArgumentException Если образцов нет или среди них есть пустой
+     */
+    StreamMatcher(byte[]... patterns) {
+        if (patterns.length == 0) {
+            throw new IllegalArgumentException("Не указано ни одного образца");
+        }
+        // Бор образцов
+        int capacity = 1;
+        for (byte[] pattern : patterns) {
+            if (pattern.length == 0) {
+                throw new IllegalArgumentException("Образец не может быть пустым");
+            }
+            capacity += pattern.length;
+        }
+        int[] trie = new int[capacity * 256];
+        Arrays.fill(trie, -1);
+        int[][] endPatterns = new int[capacity][];
+        int states = 1;
+        for (int p = 0; p < patterns.length; p++) {
+            int node = 0;
+            for (byte b : patterns[p]) {
+                int slot = node * 256 + (b & 0xFF);
+                if (trie[slot] < 0) {
+                    trie[slot] = states++;
+                }
+                node = trie[slot];
+            }
+            endPatterns[node] = endPatterns[node] == null ? new int[] {p} : append(endPatterns[node], p);
+        }
+
+        // Ссылки неудач обходом в ширину; отсутствующие переходы заменяются переходами по ссылке неудачи
+        next = Arrays.copyOf(trie, states * 256);
+        int[] fail = new int[states];
+        int[][] output = new int[states][];
+        output[0] = new int[0];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < 256; c++) {
+            int child = next[c];
+            if (child < 0) {
+                next[c] = 0;
+            } else {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int[] own = endPatterns[node] == null ? new int[0] : endPatterns[node];
+            output[node] = concat(own, output[fail[node]]);
+            for (int c = 0; c < 256; c++) {
+                int child = next[node * 256 + c];
+                if (child < 0) {
+                    next[node * 256 + c] = next[fail[node] * 256 + c];
+                } else {
+                    fail[child] = next[fail[node] * 256 + c];
+                    queue.add(child);
+                }
+            }
+        }
+
+        outputStart = new int[states + 1];
+        for (int s = 0; s < states; s++) {
+            outputStart[s + 1] = outputStart[s] + output[s].length;
+        }
+        outputs = new int[outputStart[states]];
+        for (int s = 0; s < states; s++) {
+            System.arraycopy(output[s], 0, outputs, outputStart[s], output[s].length);
+        }
+        counts = new long[patterns.length];
+    }
+
+    /**
+     * Обработка очередного куска входа (от position до limit)
+     * @return Количество совпадений, найденных в этом куске
+     */
+    long feed(ByteBuffer chunk) {
+        int s = state;
+        long found = 0;
+        while (chunk.hasRemaining()) {
+            s = next[(s << 8) | (chunk.get() & 0xFF)];
+            int from = outputStart[s];
+            int to = outputStart[s + 1];
+            if (from != to) {
+                found += to - from;
+                for (int i = from; i < to; i++) {
+                    counts[outputs[i]]++;
+                }
+            }
+        }
+        state = s;
+        total += found;
+        return found;
+    }
+
+    /**
+     * @return Совпадений всех образцов с начала потока
+     */
+    long total() {
+        return total;
+    }
+
+    /**
+     * @return Совпадений образца с номером pattern (в порядке конструктора)
+     */
+    long count(int pattern) {
+        return counts[pattern];
+    }
+
+    /**
+     * Начало нового потока: состояние и счётчики сбрасываются, таблица переходов остаётся
+     */
+    void reset() {
+        state = 0;
+        total = 0;
+        Arrays.fill(counts, 0);
+    }
+
+    private static byte[][] encode(String[] patterns) {
+        byte[][] bytes = new byte[patterns.length][];
+        for (int i = 0; i < patterns.length; i++) {
+            bytes[i] = patterns[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
@@ -1,8 +1,21 @@
 package HomeWork_5;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner; // Импорт класса Scanner для чтения ввода
 public class Task1 {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--bulk")) {
+            bulk(args); // Пакетный режим: преобразование целого текста
+            return;
+        }
         Scanner scanner = new Scanner(System.in); // Создание объекта Scanner для чтения из стандартного ввода
         char inputChar = scanner.nextLine().charAt(0); // Чтение строки из ввода и взятие первого символа
         String keyboard = "qwertyuiopasdfghjklzxcvbnm"; // Задание строки, представляющей клавиатуру в виде кольца
@@ -13,4 +26,44 @@ public class Task1 {
         System.out.println(keyboard.charAt(prevIndex)); // Вывод символа, находящегося слева от введенного
         scanner.close(); // Закрытие сканнера после окончания работы
     }
-}
\ No newline at end of file
+
+    /**
+     * Пакетный режим: Task1 --bulk [--right] [--ring символы]... [вход [выход]]
+     * Каждый символ текста заменяется соседом слева (или справа с --right) по кольцам;
+     * без --ring используется кольцо клавиатуры из задачи. Без файлов - стандартный ввод и вывод.
+     */
+    static void bulk(String[] args) throws IOException {
+        boolean right = false;
+        List<String> rings = new ArrayList<>();
+        int i = 1;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            if (args[i].equals("--right")) {
+                right = true;
+            } else if (args[i].equals("--ring") && i + 1 < args.length) {
+                rings.add(args[++i]);
+            } else {
+                System.out.println("Использование: Task1 --bulk [--right] [--ring символы]... [вход [выход]]");
+                return;
+            }
+        }
+        if (rings.isEmpty()) {
+            rings.add(KeyboardRing.QWERTY);
+        }
+        KeyboardRing ring;
+        try {
+            ring = new KeyboardRing(right, rings.toArray(new String[0]));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        try (ReadableByteChannel in = i < args.length
+                ? FileChannel.open(Paths.get(args[i]), StandardOpenOption.READ)
+                : Channels.newChannel(System.in);
+             WritableByteChannel out = i + 1 < args.length
+                     ? FileChannel.open(Paths.get(args[i + 1]), StandardOpenOption.CREATE,
+                             StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                     : Channels.newChannel(System.out)) {
+            ring.transform(in, out);
+        }
+    }
+}
@@ -1,7 +1,27 @@
+package HomeWork_5;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Scanner; // Импорт класса Scanner
+import java.util.concurrent.ForkJoinPool;
 
 public class Task2 {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--stream")) {
+            // Потоковый режим: вход любой длины, в памяти только состояние автомата
+            String[] patterns = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : new String[] {">>-->", "<--<<"};
+            stream(Channels.newChannel(System.in), new StreamMatcher(patterns));
+            return;
+        }
+        if (args.length > 0) {
+            // Режим файла: последовательность читается из отображённого в память файла
+            System.out.println(ArrowCounter.countFile(Paths.get(args[0]), ForkJoinPool.commonPool()));
+            return;
+        }
         Scanner scanner = new Scanner(System.in); // Создание объекта Scanner
         String sequence = scanner.nextLine(); // Чтение строки последовательности
         int count = 0; // Инициализация счетчика стрелок
@@ -17,4 +37,24 @@ public class Task2 {
         }
         System.out.println(count); // Вывод количества найденных стрелок
     }
-}
\ No newline at end of file
+
+    /**
+     * Подсчёт совпадений по мере чтения: после каждого куска с новыми совпадениями
+     * выводится текущий итог, последней строкой всегда выводится общее количество
+     */
+    static void stream(ReadableByteChannel in, StreamMatcher matcher) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16); // Один буфер на весь поток
+        boolean printed = false; // Итог уже выведен и с тех пор не менялся
+        while (in.read(buffer) >= 0) {
+            buffer.flip();
+            if (matcher.feed(buffer) > 0) {
+                System.out.println(matcher.total());
+                printed = true;
+            }
+            buffer.clear();
+        }
+        if (!printed) {
+            System.out.println(matcher.total());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package Attestation_01;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочная проверка параллельной обработки покупок.
+ * 1. Много потоков одновременно покупают у одного покупателя: баланс не уходит в минус,
+ *    а сумма остатка и покупок равна начальному балансу.
+ * 2. Случайный набор покупок применяется последовательно и через PurchaseEngine
+ *    с несколькими потоками (с компактными пакетами): балансы, пакеты и хеши всех покупателей совпадают.
+ * 3. Исключение в рабочем потоке PurchaseEngine не останавливает отправителя навсегда,
+ *    а бросается из finish().
+ */
+class PurchaseEngineStressTest {
+    private static final int THREADS = Math.max(Runtime.getRuntime().availableProcessors(), 2);
+    private static final int PURCHASES = 1_000_000;
+    private static final long SEED = 42;
+
+    /**
+     * Одновременные покупки у одного покупателя из нескольких потоков
+     */
+    @Test
+    @Timeout(60)
+    void concurrentPurchasesNeverOverdraw() throws InterruptedException {
+        long initial = Money.ofMajor(100_000);
+        Person person = new Person("Общий покупатель", initial);
+        Product product = new Product("Товар", 7_77); // 7.77
+        AtomicLong bought = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> buyers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (person.tryBuy(product)) {
+                    bought.incrementAndGet();
+                }
+            });
+            thread.start();
+            buyers.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : buyers) {
+            thread.join();
+        }
+
+        long left = person.getMoney();
+        assertTrue(left >= 0 && left < product.getPrice(), "Остаток " + Money.format(left));
+        assertEquals(initial, left + bought.get() * product.getPrice());
+        assertEquals(bought.get(), person.getBag().size());
+    }
+
+    /**
+     * Сравнение последовательного и параллельного применения одного набора покупок
+     */
+    @Test
+    @Timeout(120)
+    void parallelEngineMatchesSequential() throws InterruptedException, IOException {
+        Random random = new Random(SEED);
+        int customers = 1000;
+        long[] balances = new long[customers];
+        for (int i = 0; i < customers; i++) {
+            balances[i] = Money.ofMajor(random.nextInt(5000));
+        }
+        ProductCatalog catalog = new ProductCatalog();
+        for (int i = 0; i < 200; i++) {
+            long price = 1 + random.nextInt(10_000);
+            catalog.put(i % 4 == 0
+                    ? new DiscountProduct("Скидочный " + i, price, random.nextInt(5000), "01.01.2099")
+                    : new Product("Продукт " + i, price));
+        }
+        int[] who = new int[PURCHASES];
+        int[] what = new int[PURCHASES];
+        for (int i = 0; i < PURCHASES; i++) {
+            who[i] = random.nextInt(customers);
+            what[i] = random.nextInt(catalog.size());
+        }
+
+        Person[] sequential = createPeople(balances, false);
+        for (int i = 0; i < PURCHASES; i++) {
+            sequential[who[i]].tryBuy(catalog.product(what[i]));
+        }
+
+        Person[] parallel = createPeople(balances, true);
+        PurchaseEngine engine = new PurchaseEngine(THREADS, catalog);
+        for (int i = 0; i < PURCHASES; i++) {
+            engine.submit(who[i], parallel[who[i]], what[i]);
+        }
+        engine.finish();
+
+        for (int i = 0; i < customers; i++) {
+            assertTrue(parallel[i].getMoney() >= 0, parallel[i].getName());
+            assertEquals(sequential[i], parallel[i]);
+            assertEquals(sequential[i].hashCode(), parallel[i].hashCode());
+            assertEquals(sequential[i].toString(), parallel[i].toString());
+        }
+    }
+
+    /**
+     * Получатель результатов бросает исключение на первой покупке: отправитель должен пройти
+     * больше пакетов, чем есть в обращении, и получить исключение из finish()
+     */
+    @Test
+    @Timeout(60)
+    void workerFailureIsRethrownFromFinish() {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.put(new Product("Продукт", 1));
+        Person person = new Person("Покупатель", Money.ofMajor(1_000_000));
+        PurchaseEngine engine = new PurchaseEngine(THREADS, catalog, (tag, price, balance) -> {
+            throw new IllegalStateException("сбой получателя");
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            for (int i = 0; i < 100_000; i++) {
+                engine.submit(0, person, 0, PurchaseEngine.TODAY, i);
+            }
+            engine.finish();
+        });
+    }
+
+    private static Person[] createPeople(long[] balances, boolean compactBags) {
+        Person[] people = new Person[balances.length];
+        for (int i = 0; i < balances.length; i++) {
+            people[i] = new Person("Покупатель " + i, balances[i], compactBags);
+        }
+        return people;
+    }
+}
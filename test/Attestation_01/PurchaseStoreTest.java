@@ -0,0 +1,155 @@
+package Attestation_01;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Восстановление хранилища пакетного режима (снимок и журнал).
+ * 1. Журнал, оборванный посреди записи, восстанавливается до последней целой записи и обрезается.
+ * 2. Снимок с изменённым байтом не загружается (IOException).
+ * 3. Контрольная точка и восстановление дают те же балансы и пакеты.
+ * 4. Журнал прежнего поколения (сбой между снимком и новым журналом) не применяется повторно.
+ */
+class PurchaseStoreTest {
+    private static final int CUSTOMERS = 20;
+    private static final int PURCHASES = 500;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tornJournalTailIsTruncated() throws IOException {
+        CustomerIndex people = new CustomerIndex();
+        ProductCatalog catalog = new ProductCatalog();
+        String[] beforeLast;
+        try (PurchaseStore store = PurchaseStore.recover(dir, people, catalog)) {
+            fill(people, catalog);
+            store.checkpoint(people, catalog);
+            beforeLast = buy(people, catalog, store.journal(), PURCHASES);
+            store.journal().commit();
+        }
+        Path journal = dir.resolve(PurchaseJournal.FILE);
+        long size = Files.size(journal);
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(size - PurchaseJournal.RECORD / 2); // Последняя запись оборвана посередине
+        }
+
+        CustomerIndex recovered = new CustomerIndex();
+        try (PurchaseStore store = PurchaseStore.recover(dir, recovered, new ProductCatalog())) {
+            assertEquals(PURCHASES - 1, store.journal().records());
+        }
+        assertEquals(size - PurchaseJournal.RECORD, Files.size(journal));
+        for (int id = 0; id < CUSTOMERS; id++) {
+            assertEquals(beforeLast[id], recovered.person(id).toString() + " " + recovered.person(id).getMoney());
+        }
+    }
+
+    @Test
+    void corruptedSnapshotIsRejected() throws IOException {
+        CustomerIndex people = new CustomerIndex();
+        ProductCatalog catalog = new ProductCatalog();
+        try (PurchaseStore store = PurchaseStore.recover(dir, people, catalog)) {
+            fill(people, catalog);
+            buy(people, catalog, store.journal(), PURCHASES);
+            store.checkpoint(people, catalog);
+        }
+        Path snapshot = dir.resolve(StoreSnapshot.FILE);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshot, bytes);
+
+        assertThrows(IOException.class, () -> PurchaseStore.recover(dir, new CustomerIndex(), new ProductCatalog()).close());
+    }
+
+    @Test
+    void checkpointAndRecoverKeepBalancesAndBags() throws IOException {
+        CustomerIndex people = new CustomerIndex();
+        ProductCatalog catalog = new ProductCatalog();
+        try (PurchaseStore store = PurchaseStore.recover(dir, people, catalog)) {
+            fill(people, catalog);
+            buy(people, catalog, store.journal(), PURCHASES);
+            store.checkpoint(people, catalog);
+            buy(people, catalog, store.journal(), PURCHASES); // После снимка - в журнал
+            store.journal().commit();
+        }
+        assertRecovered(people);
+    }
+
+    @Test
+    void journalOfPreviousGenerationIsNotReplayed() throws IOException {
+        CustomerIndex people = new CustomerIndex();
+        ProductCatalog catalog = new ProductCatalog();
+        try (PurchaseStore store = PurchaseStore.recover(dir, people, catalog)) {
+            fill(people, catalog);
+            store.checkpoint(people, catalog);
+            buy(people, catalog, store.journal(), PURCHASES);
+            store.journal().commit();
+            // Сбой при контрольной точке: новый снимок уже записан, а журнал остался прежнего поколения
+            StoreSnapshot.write(dir, 1, people, catalog);
+        }
+        assertRecovered(people);
+    }
+
+    private void assertRecovered(CustomerIndex people) throws IOException {
+        CustomerIndex recovered = new CustomerIndex();
+        try (PurchaseStore ignored = PurchaseStore.recover(dir, recovered, new ProductCatalog())) {
+            assertEquals(people.size(), recovered.size());
+            for (int id = 0; id < people.size(); id++) {
+                assertEquals(people.person(id).getMoney(), recovered.person(id).getMoney());
+                assertEquals(people.person(id), recovered.person(id));
+                assertEquals(people.person(id).hashCode(), recovered.person(id).hashCode());
+                assertEquals(people.person(id).toString(), recovered.person(id).toString());
+            }
+        }
+    }
+
+    /**
+     * Покупатели с обычными и компактными пакетами, обычные и скидочные продукты
+     */
+    private static void fill(CustomerIndex people, ProductCatalog catalog) {
+        for (int i = 0; i < CUSTOMERS; i++) {
+            people.put(new Person("Покупатель " + i, Money.ofMajor(200 + 50 * i), i % 2 == 0));
+        }
+        for (int i = 0; i < 8; i++) {
+            catalog.put(i % 3 == 0
+                    ? new DiscountProduct("Скидочный " + i, Money.ofMajor(3 + i), Money.ofMajor(1), "01.01.2099")
+                    : new Product("Продукт " + i, Money.ofMajor(2 + i) + 50));
+        }
+    }
+
+    /**
+     * Покупки с записью выполненных в журнал, как в PurchaseEngine
+     * @return Состояние покупателей перед последней выполненной покупкой
+     */
+    private static String[] buy(CustomerIndex people, ProductCatalog catalog, PurchaseJournal journal, int count)
+            throws IOException {
+        String[] beforeLast = new String[people.size()];
+        for (int n = 0, k = 0; n < count; k++) {
+            int customerId = k % people.size();
+            int productId = (k * 7) % catalog.size();
+            long price = catalog.price(productId, PriceClock.current().today());
+            if (n == count - 1) {
+                for (int id = 0; id < people.size(); id++) {
+                    beforeLast[id] = people.person(id).toString() + " " + people.person(id).getMoney();
+                }
+            }
+            if (people.person(customerId).tryBuy(catalog.product(productId), price)) {
+                journal.append(customerId, productId, price);
+                n++;
+            }
+            if (k > count * 100) {
+                throw new IllegalStateException("Покупателям не хватает денег на " + count + " покупок");
+            }
+        }
+        return beforeLast;
+    }
+}